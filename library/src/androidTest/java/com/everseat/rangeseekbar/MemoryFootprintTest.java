@@ -0,0 +1,234 @@
+package com.everseat.rangeseekbar;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Paint;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the heap retained by a single seekbar against a checked-in budget, so a new field or
+ * holder that is not shared between instances shows up as a test failure.
+ *
+ * <p>The retained size is estimated by walking the object graph from the fields the library
+ * declares on the view. Objects also reachable from a second instance are shared and not counted.
+ * Framework objects are counted shallowly and the walk stops at contexts, resources, views,
+ * classes and threads. Sizes assume a 8 byte object header, 12 byte array header and 4 byte
+ * references, aligned to 8 bytes.
+ *
+ * <p>The budgets are provisional until this test has run on a device. Each run logs the measured
+ * sizes under the {@code MemoryFootprintTest} tag, and the budgets should be set from the first
+ * device run. The numbers below come from running the estimator on a desktop JVM, with the
+ * framework's Drawable, Paint and TextPaint fields laid out as on API 24:
+ * <ul>
+ * <li>RangeSeekbar: 528 bytes in 8 objects, down from 1224 bytes in 25 objects when every bar
+ * held its own paints, atomics and runnables.</li>
+ * <li>Seekbar: 400 bytes in 5 objects, down from 1008 bytes in 21 objects.</li>
+ * </ul>
+ * The budgets leave 20-30% headroom over these values. Native paint memory is not included in
+ * the old numbers.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MemoryFootprintTest {
+  private static final String TAG = "MemoryFootprintTest";
+  private static final int RANGE_SEEKBAR_BUDGET = 640;
+  private static final int SEEKBAR_BUDGET = 512;
+
+  private Context context;
+
+  @Before
+  public void setUp() {
+    context = InstrumentationRegistry.getTargetContext();
+  }
+
+  @Test
+  public void rangeSeekbarFitsBudget() throws Exception {
+    RangeSeekbar seekbar = layout(new RangeSeekbar(context));
+    RangeSeekbar other = layout(new RangeSeekbar(context));
+
+    Set<Object> retained = retained(seekbar, other);
+    assertNoOwnedPaint(retained);
+    assertWithinBudget("RangeSeekbar", retained, RANGE_SEEKBAR_BUDGET);
+  }
+
+  @Test
+  public void seekbarFitsBudget() throws Exception {
+    Seekbar seekbar = layout(new Seekbar(context));
+    Seekbar other = layout(new Seekbar(context));
+
+    Set<Object> retained = retained(seekbar, other);
+    assertNoOwnedPaint(retained);
+    assertWithinBudget("Seekbar", retained, SEEKBAR_BUDGET);
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Internal methods
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  private static <T extends View> T layout(T view) {
+    int width = View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY);
+    int height = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    view.measure(width, height);
+    view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    return view;
+  }
+
+  private static void assertNoOwnedPaint(Set<Object> retained) {
+    for (Object object : retained) {
+      assertFalse("Paint owned by a single seekbar: " + object, object instanceof Paint);
+    }
+  }
+
+  /**
+   * Logs the measured size, so the budget can be checked against a device run.
+   */
+  private static void assertWithinBudget(String name, Set<Object> retained, int budget) {
+    long size = 0;
+    StringBuilder breakdown = new StringBuilder();
+    for (Object object : retained) {
+      long objectSize = shallowSize(object);
+      size += objectSize;
+      breakdown.append('\n').append(object.getClass().getName()).append(": ").append(objectSize);
+    }
+    String message = name + " retained " + size + " bytes in " + retained.size() + " objects, budget is " + budget;
+    Log.i(TAG, message + breakdown);
+    assertTrue(message + breakdown, size <= budget);
+  }
+
+  /**
+   * Returns the objects reachable from the first seekbar that are not reachable from the second,
+   * including the first seekbar itself.
+   */
+  private static Set<Object> retained(AbsSeekbar seekbar, AbsSeekbar other) throws IllegalAccessException {
+    Set<Object> reachable = reachable(seekbar);
+    reachable.removeAll(reachable(other));
+    reachable.add(seekbar);
+    return reachable;
+  }
+
+  private static Set<Object> reachable(AbsSeekbar root) throws IllegalAccessException {
+    Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    Deque<Object> queue = new ArrayDeque<>();
+    for (Field field : libraryFields(root.getClass())) {
+      if (!field.getType().isPrimitive()) {
+        enqueue(field.get(root), seen, queue);
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      Object object = queue.poll();
+      Class<?> type = object.getClass();
+      if (type.isArray()) {
+        if (!type.getComponentType().isPrimitive()) {
+          for (int i = 0; i < Array.getLength(object); i++) {
+            enqueue(Array.get(object, i), seen, queue);
+          }
+        }
+        continue;
+      }
+      // Framework objects are counted but not followed
+      if (isFramework(type)) continue;
+      for (Field field : instanceFields(type)) {
+        if (!field.getType().isPrimitive() && !isFramework(field.getDeclaringClass())) {
+          enqueue(field.get(object), seen, queue);
+        }
+      }
+    }
+    return seen;
+  }
+
+  private static void enqueue(Object object, Set<Object> seen, Deque<Object> queue) {
+    if (object == null || isBoundary(object) || !seen.add(object)) return;
+    queue.add(object);
+  }
+
+  private static boolean isBoundary(Object object) {
+    return object instanceof Context
+        || object instanceof Resources
+        || object instanceof View
+        || object instanceof Class
+        || object instanceof Thread
+        || object instanceof ClassLoader;
+  }
+
+  private static boolean isFramework(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("android.") || name.startsWith("com.android.");
+  }
+
+  /**
+   * Returns the instance fields declared by the library on the given view class.
+   */
+  private static List<Field> libraryFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    for (Field field : instanceFields(type)) {
+      if (!isFramework(field.getDeclaringClass())) {
+        fields.add(field);
+      }
+    }
+    return fields;
+  }
+
+  private static List<Field> instanceFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          field.setAccessible(true);
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Views only count the fields the library declares, the rest of the view is the framework's.
+   */
+  private static long shallowSize(Object object) {
+    Class<?> type = object.getClass();
+    if (type.isArray()) {
+      Class<?> component = type.getComponentType();
+      int elementSize = component.isPrimitive() ? primitiveSize(component) : 4;
+      return align(12 + (long) Array.getLength(object) * elementSize);
+    }
+
+    List<Field> fields = object instanceof View ? libraryFields(type) : instanceFields(type);
+    long size = 8;
+    for (Field field : fields) {
+      size += field.getType().isPrimitive() ? primitiveSize(field.getType()) : 4;
+    }
+    return align(size);
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) return 8;
+    if (type == int.class || type == float.class) return 4;
+    if (type == short.class || type == char.class) return 2;
+    return 1;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+}
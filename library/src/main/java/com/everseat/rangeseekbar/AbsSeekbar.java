@@ -8,16 +8,26 @@ import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.ColorInt;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
-import android.text.TextPaint;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.ScrollerCompat;
 import android.util.AttributeSet;
+import android.view.GestureDetector;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 import static com.everseat.rangeseekbar.Util.dpToPx;
 
 /**
@@ -29,19 +39,22 @@ public abstract class AbsSeekbar extends View {
   // Dimensions
   private int trackHeight = 0;
   private int labelTextPadding = 0;
-  private int labelTextSize = 0;
   private int valueTextPadding = 0;
+  private int minLabelWidth = 0;
+  private int minLabelHeight = 0;
+  private int maxLabelWidth = 0;
+  private int maxLabelHeight = 0;
+  private int tickMinSpacing = 0;
+  private int histogramHeight = 0;
+  private int histogramBucketWidth = 0;
 
   // Size holders
-  Rect sharedTextBounds = new Rect();
-  private RectF trackBounds = new RectF();
-  private Rect minLabelBounds = new Rect();
-  private Rect maxLabelBounds = new Rect();
+  final Rect sharedTextBounds = new Rect();
+  private final RectF trackBounds = new RectF();
 
-  // Paint
-  private Paint valuePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
-  private Paint labelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
-  private Paint sharedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  // Paint, shared between instances and never modified
+  private Paint valuePaint;
+  private Paint labelPaint;
 
   // State values
   private int trackColor = 0;
@@ -49,15 +62,84 @@ public abstract class AbsSeekbar extends View {
   private float progress = 0f;
   private String minLabelText;
   private String maxLabelText;
+  private int tickColor = 0;
+  private int tickCount = 0;
+  private int majorTickInterval = 0;
+  private int histogramColor = 0;
+
+  private static final float[] EMPTY_POINTS = new float[0];
+  private static final int[] EMPTY_COUNTS = new int[0];
+  private static final double[] EMPTY_BOUNDARIES = new double[0];
+
+  // Tick coordinates, written once per layout and drawn with a single drawLines call
+  private float[] tickPoints = EMPTY_POINTS;
+  private int tickPointCount = 0;
   static final int[] STATE_PRESSED = new int[] {android.R.attr.state_pressed};
   static final int[] STATE_DEFAULT = new int[] {};
 
-  private ValueFormatter valueFormatter = new ValueFormatter() {
+  @Nullable RangeSeekbarGroup group;
+
+  // Percentile mapping, refreshed from the sketch on every layout
+  @Nullable private QuantileSketch percentileSketch;
+  @Nullable private QuantileSketch.Cdf percentileCdf;
+
+  @Nullable private DataSource snapIndex;
+
+  // Histogram of the data source across the visible track, counted in the background. Buckets lie
+  // on a grid of equally wide positions along the whole track, so panning shifts the counted
+  // buckets and only the ones coming into view are counted
+  @Nullable private DataSource dataSource;
+  private double domainMin = 0;
+  private double domainMax = 1;
+  @Nullable private HistogramTask histogramTask;
+  private Executor histogramCallbackExecutor = HistogramTask.MAIN_THREAD_EXECUTOR;
+  private double[] histogramBoundaries = EMPTY_BOUNDARIES;
+  private int[] histogram = EMPTY_COUNTS;
+  private int histogramFirstBucket = 0;
+  private int histogramBucketCount = 0;
+  private double histogramBucketSize = 0;
+  private int histogramVersion = 0;
+  private int histogramCountedVersion = -1;
+  private float[] histogramPoints = EMPTY_POINTS;
+  private int histogramPointCount = 0;
+  private static final int UNCOUNTED = -1;
+
+  // Zoom: the visible window of the track, as positions (0-1) of the whole domain
+  private boolean zoomEnabled = false;
+  private float maxZoom = DEFAULT_MAX_ZOOM;
+  private double windowStart = 0;
+  private double windowSize = 1;
+  private int flingTrackWidth = 0;
+  @Nullable private ScaleGestureDetector scaleGestureDetector;
+  @Nullable private GestureDetector gestureDetector;
+  @Nullable private ScrollerCompat zoomScroller;
+  private static final float DEFAULT_MAX_ZOOM = 1000f;
+  // Keeps the zoomed track width in pixels well within int range for flinging
+  private static final float MAX_ZOOM_LIMIT = 100000f;
+
+  // Values posted from other threads, applied on the main thread at most once per frame
+  static final long NO_PENDING_VALUE = -1L;
+  private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+  private static final AtomicIntegerFieldUpdater<AbsSeekbar> PENDING_VALUES_SCHEDULED =
+      AtomicIntegerFieldUpdater.newUpdater(AbsSeekbar.class, "pendingValuesScheduled");
+  private static final AtomicLongFieldUpdater<AbsSeekbar> PENDING_PROGRESS =
+      AtomicLongFieldUpdater.newUpdater(AbsSeekbar.class, "pendingProgress");
+  private volatile int pendingValuesScheduled = 0;
+  private volatile long pendingProgress = NO_PENDING_VALUE;
+  @Nullable private PendingValuesRunnable pendingValuesRunnable;
+
+  private static final ValueFormatter DEFAULT_VALUE_FORMATTER = new PreciseValueFormatter() {
     @Override
     public String formatValue(float value) {
       return String.valueOf(value);
     }
+
+    @Override
+    public String formatValue(double value) {
+      return String.valueOf(value);
+    }
   };
+  private ValueFormatter valueFormatter = DEFAULT_VALUE_FORMATTER;
 
   public AbsSeekbar(Context context) {
     super(context);
@@ -81,33 +163,77 @@ public abstract class AbsSeekbar extends View {
   @Override
   protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
     super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-    labelPaint.getTextBounds(minLabelText, 0, minLabelText.length(), minLabelBounds);
-    labelPaint.getTextBounds(maxLabelText, 0, maxLabelText.length(), maxLabelBounds);
+    labelPaint.getTextBounds(minLabelText, 0, minLabelText.length(), sharedTextBounds);
+    minLabelWidth = sharedTextBounds.width();
+    minLabelHeight = sharedTextBounds.height();
+    labelPaint.getTextBounds(maxLabelText, 0, maxLabelText.length(), sharedTextBounds);
+    maxLabelWidth = sharedTextBounds.width();
+    maxLabelHeight = sharedTextBounds.height();
   }
 
   @Override
   protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
     super.onLayout(changed, left, top, right, bottom);
+    // Value mapping
+    QuantileSketch.Cdf cdf = percentileSketch != null ? percentileSketch.getCdf() : null;
+    cdf = cdf != null && !cdf.isEmpty() ? cdf : null;
+    if (cdf != percentileCdf) {
+      percentileCdf = cdf;
+      invalidateHistogram();
+    }
+    updateDomain();
+
     // Track
     trackBounds.left = getTrackLeftOffset();
     trackBounds.top = (getMeasuredHeight() / 2) - trackHeight;
     trackBounds.right = getMeasuredWidth() - getTrackRightOffset();
     trackBounds.bottom = trackBounds.top + trackHeight;
 
-    // Min/max value label
-    minLabelBounds.offsetTo(labelTextPadding, (int) trackBounds.centerY() - (minLabelBounds.height() / 2));
-    maxLabelBounds.offsetTo((getMeasuredWidth() - maxLabelBounds.width()) - labelTextPadding, (int) (trackBounds.centerY() - (minLabelBounds.height() / 2)));
+    // Tick marks
+    computeTicks();
+
+    // Data overlay
+    updateHistogram();
+
+    layoutThumbs();
   }
 
   @Override
   protected void onDraw(Canvas canvas) {
     super.onDraw(canvas);
     drawTrack(canvas);
-    onDrawTrackDecoration(canvas, sharedPaint);
+    drawHistogram(canvas);
+    onDrawTrackDecoration(canvas, SharedPaints.scratchPaint());
+    drawTicks(canvas);
 
-    // Draw min/max value label
-    drawLabel(canvas, minLabelText, minLabelBounds);
-    drawLabel(canvas, maxLabelText, maxLabelBounds);
+    // Draw min/max value label, vertically centered on the track
+    int labelTop = (int) trackBounds.centerY() - (minLabelHeight / 2);
+    drawLabel(canvas, minLabelText, labelTextPadding, labelTop + minLabelHeight);
+    drawLabel(canvas, maxLabelText, (getMeasuredWidth() - maxLabelWidth) - labelTextPadding, labelTop + maxLabelHeight);
+  }
+
+  @Override
+  public void computeScroll() {
+    super.computeScroll();
+    if (zoomScroller != null && zoomScroller.computeScrollOffset()) {
+      setVisibleWindow((double) zoomScroller.getCurrX() / flingTrackWidth, windowSize);
+      ViewCompat.postInvalidateOnAnimation(this);
+    }
+  }
+
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    // Buckets left uncounted on detach are counted on the next layout
+    if (dataSource != null) {
+      requestLayout();
+    }
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    cancelHistogramTask();
   }
 
   @Override
@@ -155,9 +281,13 @@ public abstract class AbsSeekbar extends View {
   }
 
   private void setLabelTextSize(float textSize) {
-    labelPaint.setTextSize(textSize);
+    labelPaint = SharedPaints.textPaint(textSize);
   }
 
+  /**
+   * Sets how values are shown under the thumbs. Pass a {@link PreciseValueFormatter} to format
+   * them without rounding to a float first.
+   */
   public void setValueFormatter(@NonNull ValueFormatter formatter) {
     this.valueFormatter = formatter;
   }
@@ -175,6 +305,15 @@ public abstract class AbsSeekbar extends View {
     invalidate();
   }
 
+  /**
+   * Thread-safe version of {@link #setProgress(float)}. Only the latest value posted before the
+   * next frame is applied.
+   */
+  public void postProgress(float progress) {
+    PENDING_PROGRESS.set(this, encodePendingValue(progress));
+    schedulePendingValues();
+  }
+
   public int getTrackFillColor() {
     return trackFillColor;
   }
@@ -192,17 +331,213 @@ public abstract class AbsSeekbar extends View {
   }
 
   public void setValueTextSize(float textSize) {
-    valuePaint.setTextSize(textSize);
+    valuePaint = SharedPaints.textPaint(textSize);
   }
 
   public int getValueTextPadding() {
     return valueTextPadding;
   }
 
+  /**
+   * Sets the number of steps the track is divided into. A tick mark is drawn at every step
+   * boundary, decimated so that ticks are never closer than the minimum tick spacing. A count of
+   * 0 disables tick marks.
+   */
+  public void setTickCount(int count) {
+    tickCount = Math.max(count, 0);
+    requestLayout();
+  }
+
+  public int getTickCount() {
+    return tickCount;
+  }
+
+  /**
+   * Sets how many steps apart major ticks are. Major ticks are drawn taller than minor ticks and
+   * are kept when minor ticks have to be dropped. An interval of 0 disables major ticks.
+   */
+  public void setMajorTickInterval(int interval) {
+    majorTickInterval = Math.max(interval, 0);
+    requestLayout();
+  }
+
+  public int getMajorTickInterval() {
+    return majorTickInterval;
+  }
+
+  public void setTickMinSpacing(int spacingInPx) {
+    tickMinSpacing = Math.max(spacingInPx, 1);
+    requestLayout();
+  }
+
+  public void setTickColor(@ColorInt int color) {
+    tickColor = color;
+    invalidate();
+  }
+
+  /**
+   * Maps the track to percentiles of the data summarized by the given sketch, so each part of the
+   * track covers an equal share of the data. Values reported and accepted by the seekbar are then
+   * data values rather than 0-1 fractions, and the current values are reset to the smallest and
+   * largest value in the sketch. If the sketch is still empty, set the values once it has data.
+   * Pass null to go back to a linear track, which resets the values to its ends.
+   */
+  public void setPercentileSketch(@Nullable QuantileSketch sketch) {
+    QuantileSketch previous = percentileSketch;
+    percentileSketch = sketch;
+    if (sketch == null) {
+      if (previous != null) {
+        updateDomain();
+        resetValues(domainMin, domainMax);
+      }
+    } else {
+      QuantileSketch.Cdf cdf = sketch.getCdf();
+      if (!cdf.isEmpty()) {
+        resetValues(cdf.getQuantile(0), cdf.getQuantile(1));
+      }
+    }
+    requestLayout();
+    invalidate();
+  }
+
+  @Nullable
+  public QuantileSketch getPercentileSketch() {
+    return percentileSketch;
+  }
+
+  /**
+   * Picks up data added to the percentile sketch since the last layout. The sketch itself can be
+   * fed from any thread, but this must be called on the main thread.
+   */
+  public void notifyPercentileSketchChanged() {
+    requestLayout();
+    invalidate();
+  }
+
+  /**
+   * Makes the thumbs snap to the nearest value in the given index while they are dragged. Any
+   * {@link DataSource} works, including a {@link MappedDataSource}. Pass null to stop snapping.
+   *
+   * <p>Without a data source or percentile sketch, the track then spans linearly from the smallest
+   * to the largest value in the index, and the current values are reset to its ends. Values added
+   * to the index later widen the track on the next layout.
+   */
+  public void setSnapIndex(@Nullable DataSource snapIndex) {
+    DataSource previous = this.snapIndex;
+    this.snapIndex = snapIndex;
+    if (percentileSketch == null && dataSource == null && (snapIndex != null || previous != null)) {
+      updateDomain();
+      resetValues(domainMin, domainMax);
+    }
+    requestLayout();
+    invalidate();
+  }
+
+  @Nullable
+  public DataSource getSnapIndex() {
+    return snapIndex;
+  }
+
+  /**
+   * Attaches data to the seekbar. A histogram of the data across the visible track is drawn above
+   * it, counted on a background thread whenever the track is laid out or the visible window
+   * moves. Pass null to remove the overlay.
+   *
+   * <p>Unless a percentile sketch is set, the track then spans linearly from the smallest to the
+   * largest value in the data, values are data values rather than 0-1 fractions, and the current
+   * values are reset to the ends of the data.
+   */
+  public void setDataSource(@Nullable DataSource dataSource) {
+    DataSource previous = this.dataSource;
+    this.dataSource = dataSource;
+    invalidateHistogram();
+    if (percentileSketch == null && (dataSource != null || previous != null)) {
+      updateDomain();
+      resetValues(domainMin, domainMax);
+    }
+    requestLayout();
+    invalidate();
+  }
+
+  @Nullable
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  public void setHistogramColor(@ColorInt int color) {
+    histogramColor = color;
+    invalidate();
+  }
+
+  public void setHistogramHeight(int heightInPx) {
+    histogramHeight = heightInPx;
+    computeHistogramPoints();
+    invalidate();
+  }
+
+  public void setHistogramBucketWidth(int widthInPx) {
+    histogramBucketWidth = Math.max(widthInPx, 1);
+    requestLayout();
+  }
+
+  /**
+   * Enables pinch, double-tap, pan and fling gestures on the track to zoom into a sub-window of
+   * the domain. Thumbs still take priority over zoom gestures.
+   */
+  public void setZoomEnabled(boolean enabled) {
+    zoomEnabled = enabled;
+    if (enabled && gestureDetector == null) {
+      ZoomGestureListener listener = new ZoomGestureListener();
+      scaleGestureDetector = new ScaleGestureDetector(getContext(), listener);
+      gestureDetector = new GestureDetector(getContext(), listener);
+      zoomScroller = ScrollerCompat.create(getContext());
+    }
+    if (!enabled) {
+      resetZoom();
+    }
+  }
+
+  public boolean isZoomEnabled() {
+    return zoomEnabled;
+  }
+
+  /**
+   * Sets how many times the track can be magnified, from 1 to 100000.
+   */
+  public void setMaxZoom(float maxZoom) {
+    this.maxZoom = Math.min(Math.max(maxZoom, 1f), MAX_ZOOM_LIMIT);
+    setVisibleWindow(windowStart, windowSize);
+  }
+
+  public void resetZoom() {
+    if (zoomScroller != null) {
+      zoomScroller.abortAnimation();
+    }
+    setVisibleWindow(0, 1);
+  }
+
+  /**
+   * Returns the start of the visible window, as a position (0-1) along the whole track.
+   */
+  public double getVisibleWindowStart() {
+    return windowStart;
+  }
+
+  /**
+   * Returns the end of the visible window, as a position (0-1) along the whole track.
+   */
+  public double getVisibleWindowEnd() {
+    return windowStart + windowSize;
+  }
+
   public void setThumbDrawable(@DrawableRes int drawable) {
     setThumbDrawable(getResources().getDrawable(drawable));
   }
 
+  /**
+   * Overrides the default {@link ThumbDrawable}. The drawable should react to
+   * {@code android.R.attr.state_pressed} if it wants to show a pressed state.
+   */
   public void setThumbDrawable(Drawable drawable) {
     thumbDrawable = drawable;
   }
@@ -226,6 +561,21 @@ public abstract class AbsSeekbar extends View {
     float valueTextSize = 0;
     int valueTextPadding = 0;
     Drawable thumbDrawable = null;
+    int tickCount = 0;
+    int majorTickInterval = 0;
+    int tickMinSpacing = 0;
+    int tickColor = 0;
+    int histogramColor = 0;
+    int histogramHeight = 0;
+    int histogramBucketWidth = 0;
+    float thumbRadius = dpToPx(getResources(), 14);
+    int thumbColor = Color.WHITE;
+    int thumbPressedColor = Color.LTGRAY;
+    float thumbStrokeWidth = dpToPx(getResources(), 1);
+    int thumbStrokeColor = Color.LTGRAY;
+    float thumbPressedScale = 1f;
+    boolean zoomEnabled = false;
+    float maxZoom = DEFAULT_MAX_ZOOM;
 
     if (attrs != null) {
       TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.AbsSeekbar);
@@ -252,6 +602,36 @@ public abstract class AbsSeekbar extends View {
           valueTextPadding = ta.getDimensionPixelSize(attr, (int) dpToPx(getResources(), 4));
         } else if (attr == R.styleable.AbsSeekbar_thumbDrawable) {
           thumbDrawable = ta.getDrawable(attr);
+        } else if (attr == R.styleable.AbsSeekbar_tickCount) {
+          tickCount = ta.getInt(attr, 0);
+        } else if (attr == R.styleable.AbsSeekbar_majorTickInterval) {
+          majorTickInterval = ta.getInt(attr, 0);
+        } else if (attr == R.styleable.AbsSeekbar_tickMinSpacing) {
+          tickMinSpacing = ta.getDimensionPixelSize(attr, (int) dpToPx(getResources(), 4));
+        } else if (attr == R.styleable.AbsSeekbar_tickColor) {
+          tickColor = ta.getColor(attr, Color.GRAY);
+        } else if (attr == R.styleable.AbsSeekbar_histogramColor) {
+          histogramColor = ta.getColor(attr, Color.LTGRAY);
+        } else if (attr == R.styleable.AbsSeekbar_histogramHeight) {
+          histogramHeight = ta.getDimensionPixelSize(attr, (int) dpToPx(getResources(), 24));
+        } else if (attr == R.styleable.AbsSeekbar_histogramBucketWidth) {
+          histogramBucketWidth = ta.getDimensionPixelSize(attr, (int) dpToPx(getResources(), 4));
+        } else if (attr == R.styleable.AbsSeekbar_thumbRadius) {
+          thumbRadius = ta.getDimension(attr, thumbRadius);
+        } else if (attr == R.styleable.AbsSeekbar_thumbColor) {
+          thumbColor = ta.getColor(attr, thumbColor);
+        } else if (attr == R.styleable.AbsSeekbar_thumbPressedColor) {
+          thumbPressedColor = ta.getColor(attr, thumbPressedColor);
+        } else if (attr == R.styleable.AbsSeekbar_thumbStrokeWidth) {
+          thumbStrokeWidth = ta.getDimension(attr, thumbStrokeWidth);
+        } else if (attr == R.styleable.AbsSeekbar_thumbStrokeColor) {
+          thumbStrokeColor = ta.getColor(attr, thumbStrokeColor);
+        } else if (attr == R.styleable.AbsSeekbar_thumbPressedScale) {
+          thumbPressedScale = ta.getFloat(attr, thumbPressedScale);
+        } else if (attr == R.styleable.AbsSeekbar_zoomEnabled) {
+          zoomEnabled = ta.getBoolean(attr, false);
+        } else if (attr == R.styleable.AbsSeekbar_maxZoom) {
+          maxZoom = ta.getFloat(attr, DEFAULT_MAX_ZOOM);
         }
       }
       ta.recycle();
@@ -285,7 +665,23 @@ public abstract class AbsSeekbar extends View {
       valueTextPadding = (int) dpToPx(getResources(), 4);
     }
     if (thumbDrawable == null) {
-      thumbDrawable = getResources().getDrawable(R.drawable.ic_thumb_seekbar);
+      thumbDrawable = ThumbDrawable.obtainShared(thumbRadius, thumbColor, thumbPressedColor,
+          thumbStrokeWidth, thumbStrokeColor, thumbPressedScale);
+    }
+    if (tickMinSpacing == 0) {
+      tickMinSpacing = (int) dpToPx(getResources(), 4);
+    }
+    if (tickColor == 0) {
+      tickColor = Color.GRAY;
+    }
+    if (histogramColor == 0) {
+      histogramColor = Color.LTGRAY;
+    }
+    if (histogramHeight == 0) {
+      histogramHeight = (int) dpToPx(getResources(), 24);
+    }
+    if (histogramBucketWidth == 0) {
+      histogramBucketWidth = (int) dpToPx(getResources(), 4);
     }
 
     setMinLabelText(minLabelText);
@@ -298,23 +694,371 @@ public abstract class AbsSeekbar extends View {
     setValueTextSize(valueTextSize);
     setValueTextPadding(valueTextPadding);
     setThumbDrawable(thumbDrawable);
+    setTickCount(tickCount);
+    setMajorTickInterval(majorTickInterval);
+    setTickMinSpacing(tickMinSpacing);
+    setTickColor(tickColor);
+    setHistogramColor(histogramColor);
+    setHistogramHeight(histogramHeight);
+    setHistogramBucketWidth(histogramBucketWidth);
+    setZoomEnabled(zoomEnabled);
+    setMaxZoom(maxZoom);
   }
 
-  private void drawLabel(Canvas canvas, String text, Rect bounds) {
-    canvas.drawText(text, bounds.left, bounds.bottom, labelPaint);
+  private void drawLabel(Canvas canvas, String text, int left, int bottom) {
+    canvas.drawText(text, left, bottom, labelPaint);
   }
 
   private void drawTrack(Canvas canvas) {
-    sharedPaint.reset();
-    sharedPaint.setAntiAlias(true);
+    Paint sharedPaint = SharedPaints.scratchPaint();
     sharedPaint.setColor(trackColor);
     canvas.drawRoundRect(trackBounds, trackHeight / 2, trackHeight / 2, sharedPaint);
   }
 
+  private void drawTicks(Canvas canvas) {
+    if (tickPointCount == 0) return;
+    Paint sharedPaint = SharedPaints.scratchPaint();
+    sharedPaint.setColor(tickColor);
+    sharedPaint.setStrokeWidth(Math.max(trackHeight / 3, 1));
+    canvas.drawLines(tickPoints, 0, tickPointCount, sharedPaint);
+  }
+
+  private void drawHistogram(Canvas canvas) {
+    if (histogramPointCount == 0) return;
+    Paint sharedPaint = SharedPaints.scratchPaint();
+    sharedPaint.setAntiAlias(false);
+    sharedPaint.setColor(histogramColor);
+    sharedPaint.setStrokeWidth(Math.max(histogramBucketWidth - 1, 1));
+    canvas.drawLines(histogramPoints, 0, histogramPointCount, sharedPaint);
+  }
+
+  /**
+   * Lays the histogram grid over the visible track, one bucket per {@link #histogramBucketWidth}
+   * pixels. While the bucket size stays the same, as it does during a pan, the counted buckets are
+   * shifted and only the ones that came into view are counted. A new bucket size, after a zoom or
+   * a new layout, is counted once the task running, if any, finishes; until then the previous
+   * counts are drawn where they belong on the track.
+   */
+  private void updateHistogram() {
+    float width = trackBounds.width();
+    if (dataSource == null || width <= 0) {
+      cancelHistogramTask();
+      histogramBucketCount = 0;
+      histogramCountedVersion = -1;
+      histogramPointCount = 0;
+      return;
+    }
+
+    int bucketCount = Math.max((int) (width / histogramBucketWidth), 1);
+    double bucketSize = windowSize / bucketCount;
+    int totalBuckets = totalHistogramBuckets(bucketSize);
+    int first = Math.min((int) (windowStart / bucketSize), totalBuckets - 1);
+    int end = Math.min((int) Math.ceil((windowStart + windowSize) / bucketSize), totalBuckets);
+    end = Math.max(end, first + 1);
+
+    if (bucketSize == histogramBucketSize && histogramCountedVersion == histogramVersion) {
+      shiftHistogram(first, end - first);
+      if (histogramTask == null) {
+        countUncountedBuckets();
+      }
+    } else if (histogramTask == null) {
+      startHistogramTask(first, end, bucketSize);
+    }
+    computeHistogramPoints();
+  }
+
+  /**
+   * Returns how many buckets of the given size cover the whole track. The last one may be
+   * narrower than the rest.
+   */
+  private static int totalHistogramBuckets(double bucketSize) {
+    // Tolerates rounding when the bucket size divides the track evenly
+    return Math.max((int) Math.ceil(1 / bucketSize - 1e-6), 1);
+  }
+
+  /**
+   * Moves the counted buckets so they start at the given bucket of the grid. Buckets that come
+   * into view are marked as {@link #UNCOUNTED}.
+   */
+  private void shiftHistogram(int first, int bucketCount) {
+    if (first == histogramFirstBucket && bucketCount == histogramBucketCount) return;
+
+    int[] counts = histogram.length >= bucketCount ? histogram : new int[bucketCount];
+    int offset = first - histogramFirstBucket;
+    int from = Math.max(offset, 0);
+    int to = Math.max(-offset, 0);
+    int kept = Math.max(Math.min(histogramBucketCount - from, bucketCount - to), 0);
+    if (kept > 0) {
+      System.arraycopy(histogram, from, counts, to, kept);
+    }
+    Arrays.fill(counts, 0, Math.min(to, bucketCount), UNCOUNTED);
+    Arrays.fill(counts, Math.min(to + kept, bucketCount), bucketCount, UNCOUNTED);
+
+    histogram = counts;
+    histogramFirstBucket = first;
+    histogramBucketCount = bucketCount;
+  }
+
+  /**
+   * Counts the span of buckets between the first and last uncounted one, if any.
+   */
+  private void countUncountedBuckets() {
+    int from = -1;
+    int to = -1;
+    for (int i = 0; i < histogramBucketCount; i++) {
+      if (histogram[i] == UNCOUNTED) {
+        if (from == -1) from = i;
+        to = i + 1;
+      }
+    }
+    if (from != -1) {
+      startHistogramTask(histogramFirstBucket + from, histogramFirstBucket + to, histogramBucketSize);
+    }
+  }
+
+  /**
+   * Counts the buckets {@code first} (inclusive) to {@code end} (exclusive) of the grid with the
+   * given bucket size. The boundaries buffer is reused from task to task, since only one task runs
+   * at a time.
+   */
+  private void startHistogramTask(final int first, int end, final double bucketSize) {
+    int bucketCount = end - first;
+    // Every bucket is half-open, so extra room keeps DataSource from closing the last one
+    if (histogramBoundaries.length < bucketCount + 2) {
+      histogramBoundaries = new double[bucketCount + 2];
+    }
+    for (int i = 0; i <= bucketCount; i++) {
+      histogramBoundaries[i] = positionToValue(Math.min((first + i) * bucketSize, 1));
+    }
+    // The last bucket of the track includes its end
+    if (end == totalHistogramBuckets(bucketSize)) {
+      histogramBoundaries[bucketCount] = Math.nextUp(histogramBoundaries[bucketCount]);
+    }
+
+    final int version = histogramVersion;
+    histogramTask = HistogramTask.start(dataSource, histogramBoundaries, bucketCount,
+        histogramCallbackExecutor, new HistogramTask.Callback() {
+          @Override
+          public void onHistogramReady(int[] counts) {
+            histogramTask = null;
+            if (version == histogramVersion) {
+              mergeHistogram(first, bucketSize, counts);
+            }
+            updateHistogram();
+            invalidate();
+          }
+        });
+  }
+
+  /**
+   * Takes in counts for buckets starting at {@code first}. Counts for a new grid replace the
+   * ones drawn so far, counts for the current grid fill in the buckets they overlap.
+   */
+  private void mergeHistogram(int first, double bucketSize, int[] counts) {
+    if (bucketSize != histogramBucketSize || histogramCountedVersion != histogramVersion) {
+      if (histogram.length < counts.length) {
+        histogram = new int[counts.length];
+      }
+      System.arraycopy(counts, 0, histogram, 0, counts.length);
+      histogramFirstBucket = first;
+      histogramBucketCount = counts.length;
+      histogramBucketSize = bucketSize;
+      histogramCountedVersion = histogramVersion;
+      return;
+    }
+
+    for (int i = 0; i < counts.length; i++) {
+      int index = first + i - histogramFirstBucket;
+      if (index >= 0 && index < histogramBucketCount) {
+        histogram[index] = counts[i];
+      }
+    }
+  }
+
+  /**
+   * Drops the counts once the data or the mapping of values to the track changes. They are still
+   * drawn until the new ones are in.
+   */
+  private void invalidateHistogram() {
+    histogramVersion++;
+    cancelHistogramTask();
+  }
+
+  private void cancelHistogramTask() {
+    if (histogramTask == null) return;
+    histogramTask.cancel();
+    histogramTask = null;
+    // The cancelled task may still be reading the boundaries
+    histogramBoundaries = EMPTY_BOUNDARIES;
+  }
+
+  /**
+   * Writes one vertical bar per counted bucket within the track into {@link #histogramPoints},
+   * scaled to the tallest bar. Bars are placed by their position along the whole track, so they
+   * move with the visible window.
+   */
+  private void computeHistogramPoints() {
+    histogramPointCount = 0;
+    int bucketCount = histogramBucketCount;
+    if (bucketCount == 0) return;
+
+    int maxCount = 0;
+    for (int i = 0; i < bucketCount; i++) {
+      maxCount = Math.max(maxCount, histogram[i]);
+    }
+    if (maxCount == 0) return;
+
+    if (histogramPoints.length < bucketCount * 4) {
+      histogramPoints = new float[bucketCount * 4];
+    }
+    float bottom = trackBounds.top - trackHeight;
+    for (int i = 0; i < bucketCount; i++) {
+      if (histogram[i] <= 0) continue;
+      float x = positionToX((histogramFirstBucket + i + 0.5) * histogramBucketSize);
+      if (x < trackBounds.left || x > trackBounds.right) continue;
+      histogramPoints[histogramPointCount++] = x;
+      histogramPoints[histogramPointCount++] = bottom;
+      histogramPoints[histogramPointCount++] = x;
+      histogramPoints[histogramPointCount++] = bottom - (histogramHeight * histogram[i] / (float) maxCount);
+    }
+  }
+
+  /**
+   * Writes the visible tick coordinates into {@link #tickPoints}. The stride between drawn ticks
+   * is chosen so that ticks are at least {@link #tickMinSpacing} pixels apart, which bounds the
+   * work here and in {@link #drawTicks(Canvas)} by the track width instead of the step count.
+   */
+  private void computeTicks() {
+    tickPointCount = 0;
+    float width = trackBounds.width();
+    if (tickCount == 0 || width <= 0) return;
+
+    // Only steps inside the visible window are considered
+    int firstStep = (int) Math.ceil(windowStart * tickCount);
+    int lastStep = (int) Math.floor((windowStart + windowSize) * tickCount);
+    int stride = calculateTickStride(tickCount, majorTickInterval, (float) (tickCount * windowSize * tickMinSpacing / width));
+    firstStep = ((firstStep + stride - 1) / stride) * stride;
+    // The end of the track always gets a tick, even when the stride does not divide the count
+    boolean endTick = lastStep == tickCount && tickCount % stride != 0;
+    if (firstStep > lastStep && !endTick) return;
+
+    int maxTicks = Math.max((lastStep - firstStep) / stride + 1, 0) + (endTick ? 1 : 0);
+    if (tickPoints.length < maxTicks * 4) {
+      tickPoints = new float[maxTicks * 4];
+    }
+
+    for (int step = firstStep; step <= lastStep; step += stride) {
+      addTick(step);
+    }
+    if (endTick) {
+      addTick(tickCount);
+    }
+  }
+
+  private void addTick(int step) {
+    boolean major = majorTickInterval > 0 && step % majorTickInterval == 0;
+    float halfLength = major ? trackHeight * 2 : trackHeight;
+    float x = positionToX((double) step / tickCount);
+    float centerY = trackBounds.centerY();
+    tickPoints[tickPointCount++] = x;
+    tickPoints[tickPointCount++] = centerY - halfLength;
+    tickPoints[tickPointCount++] = x;
+    tickPoints[tickPointCount++] = centerY + halfLength;
+  }
+
+  /**
+   * Returns the smallest stride of at least {@code minStride} steps that keeps every drawn major
+   * tick. Strides below the major interval are divisors of it; strides above are multiples of it.
+   */
+  static int calculateTickStride(int tickCount, int majorTickInterval, float minStride) {
+    int stride = Math.max((int) Math.ceil(minStride), 1);
+    if (stride > tickCount) return Math.max(tickCount, 1);
+    if (majorTickInterval <= 1) return stride;
+
+    if (stride <= majorTickInterval) {
+      while (majorTickInterval % stride != 0) {
+        stride++;
+      }
+      return stride;
+    }
+    return ((stride + majorTickInterval - 1) / majorTickInterval) * majorTickInterval;
+  }
+
+  /**
+   * Sets where histogram counts are handed back. Defaults to the main thread; a seekbar drawn on
+   * another thread must get them on that thread.
+   */
+  void setHistogramCallbackExecutor(@NonNull Executor executor) {
+    histogramCallbackExecutor = executor;
+  }
+
+  /**
+   * Lets the {@link RangeSeekbarGroup} this bar belongs to, if any, know that its value changed.
+   */
+  void notifyGroup() {
+    if (group != null) {
+      group.onMemberChanged(this);
+    }
+  }
+
+  /**
+   * Schedules {@link #applyPendingValues()} for the next frame unless it already is. Safe to call
+   * from any thread.
+   */
+  void schedulePendingValues() {
+    if (PENDING_VALUES_SCHEDULED.compareAndSet(this, 0, 1)) {
+      PendingValuesRunnable runnable = pendingValuesRunnable;
+      if (runnable == null) {
+        runnable = pendingValuesRunnable = new PendingValuesRunnable();
+      }
+      MAIN_HANDLER.post(runnable);
+    }
+  }
+
+  /**
+   * Applies the latest values posted from other threads. Always called on the main thread.
+   */
+  void applyPendingValues() {
+    long progress = PENDING_PROGRESS.getAndSet(this, NO_PENDING_VALUE);
+    if (progress != NO_PENDING_VALUE) {
+      setProgress(decodePendingValue(progress));
+    }
+  }
+
+  /**
+   * Packs a float into a long that can never equal {@link #NO_PENDING_VALUE}.
+   */
+  static long encodePendingValue(float value) {
+    return Float.floatToRawIntBits(value) & 0xFFFFFFFFL;
+  }
+
+  static float decodePendingValue(long value) {
+    return Float.intBitsToFloat((int) value);
+  }
+
+  /**
+   * Packs a double into a long that can never equal {@link #NO_PENDING_VALUE}. Every NaN is
+   * collapsed into the canonical one, whose bits differ from it.
+   */
+  static long encodePendingDouble(double value) {
+    return Double.doubleToLongBits(value);
+  }
+
+  static double decodePendingDouble(long value) {
+    return Double.longBitsToDouble(value);
+  }
+
   protected String formatValue(float value) {
     return valueFormatter.formatValue(value);
   }
 
+  protected String formatValue(double value) {
+    if (valueFormatter instanceof PreciseValueFormatter) {
+      return ((PreciseValueFormatter) valueFormatter).formatValue(value);
+    }
+    return valueFormatter.formatValue((float) value);
+  }
+
   /**
    * Sets the new x position on the given Rect, adjusting the left/right bounds.
    */
@@ -357,10 +1101,230 @@ public abstract class AbsSeekbar extends View {
     valuePaint.getTextBounds(text, 0, text.length(), outRect);
   }
 
-  float calculateValue(int x) {
-    if (x < 0) return 0;
-    if (x > trackBounds.width()) return 1;
-    return x / trackBounds.width();
+  /**
+   * Converts an x offset from the start of the track to a value. Values are kept in double
+   * precision, since at high zoom a pixel covers less of the domain than a float can resolve.
+   */
+  double calculateValue(int x) {
+    if (x < 0) return positionToValue(windowStart);
+    if (x > trackBounds.width()) return positionToValue(windowStart + windowSize);
+    return positionToValue(windowStart + windowSize * x / trackBounds.width());
+  }
+
+  /**
+   * Returns the snap index value nearest to the given value, or the value itself when snapping is
+   * off.
+   */
+  double snapValue(double value) {
+    if (snapIndex == null) return value;
+    return snapIndex.nearest(value);
+  }
+
+  boolean isSnapEnabled() {
+    return snapIndex != null && snapIndex.size() > 0;
+  }
+
+  /**
+   * Returns the x coordinate on the track that the given value is drawn at.
+   */
+  int valueToX(double value) {
+    float x = positionToX(valueToPosition(value));
+    return (int) Math.min(Math.max(x, trackBounds.left), trackBounds.right);
+  }
+
+  /**
+   * Returns whether the given value lies within the visible window, give or take a pixel. Values
+   * outside it are clamped to the track edge by {@link #valueToX(double)}.
+   */
+  boolean isValueInWindow(double value) {
+    float x = positionToX(valueToPosition(value));
+    return x >= trackBounds.left - 1 && x <= trackBounds.right + 1;
+  }
+
+  /**
+   * Returns the x coordinate of a position (0-1) along the whole track, taking the visible window
+   * into account. Positions outside the window fall outside the track bounds.
+   */
+  float positionToX(double position) {
+    return (float) (trackBounds.left + trackBounds.width() * (position - windowStart) / windowSize);
+  }
+
+  /**
+   * Converts a position along the track (0-1) to a value.
+   */
+  double positionToValue(double position) {
+    if (percentileCdf == null) return domainMin + (domainMax - domainMin) * position;
+    return percentileCdf.getQuantile(position);
+  }
+
+  /**
+   * Converts a value to a position along the track (0-1).
+   */
+  double valueToPosition(double value) {
+    if (percentileCdf == null) {
+      double span = domainMax - domainMin;
+      return span == 0 ? 0 : (value - domainMin) / span;
+    }
+    return percentileCdf.getRank(value);
+  }
+
+  /**
+   * Spans a linear track across the data source, or the snap index without one, or 0-1 without
+   * either.
+   */
+  private void updateDomain() {
+    DataSource data = dataSource != null ? dataSource : snapIndex;
+    int size = data != null ? data.size() : 0;
+    double min = size > 0 ? data.get(0) : 0;
+    double max = size > 0 ? data.get(size - 1) : 1;
+    if (min != domainMin || max != domainMax) {
+      domainMin = min;
+      domainMax = max;
+      invalidateHistogram();
+    }
+  }
+
+  /**
+   * Resets the current values to the ends of a new value domain.
+   */
+  void resetValues(double min, double max) {
+  }
+
+  /**
+   * Positions the thumbs for the current values. Called after every layout and whenever the
+   * visible window moves.
+   */
+  void layoutThumbs() {
+  }
+
+  /**
+   * Called when the visible window changes, so subclasses can recompute anything they draw over
+   * the track for the new window.
+   *
+   * @param start the start of the window, as a position (0-1) along the whole track
+   * @param end the end of the window, as a position (0-1) along the whole track
+   */
+  protected void onVisibleWindowChanged(double start, double end) {
+  }
+
+  /**
+   * Feeds the event to the zoom gesture detectors. Returns false if zoom is disabled.
+   */
+  boolean dispatchZoomTouchEvent(MotionEvent event) {
+    if (!zoomEnabled || scaleGestureDetector == null || gestureDetector == null) return false;
+    scaleGestureDetector.onTouchEvent(event);
+    gestureDetector.onTouchEvent(event);
+    return true;
+  }
+
+  /**
+   * Moves the visible window, clamped to the track and the max zoom. Only the ticks, thumb
+   * positions and histogram bars are recomputed, so the cost does not depend on the zoom level.
+   */
+  private void setVisibleWindow(double start, double size) {
+    size = Math.min(Math.max(size, 1.0 / maxZoom), 1.0);
+    start = Math.min(Math.max(start, 0.0), 1.0 - size);
+    if (start == windowStart && size == windowSize) return;
+
+    windowStart = start;
+    windowSize = size;
+    computeTicks();
+    updateHistogram();
+    layoutThumbs();
+    onVisibleWindowChanged(windowStart, windowStart + windowSize);
+    invalidate();
+  }
+
+  /**
+   * Zooms by the given factor, keeping the position under x where it is.
+   */
+  private void zoomAround(float x, float factor) {
+    float width = trackBounds.width();
+    if (width <= 0) return;
+    double fraction = Math.min(Math.max((x - trackBounds.left) / width, 0), 1);
+    double anchor = windowStart + windowSize * fraction;
+    double newSize = Math.min(Math.max(windowSize / factor, 1.0 / maxZoom), 1.0);
+    setVisibleWindow(anchor - newSize * fraction, newSize);
+  }
+
+  /**
+   * Hops from the main looper onto the next animation frame, then applies the pending values.
+   * Both steps run on the main thread. Created the first time a value is posted.
+   */
+  private class PendingValuesRunnable implements Runnable {
+    private boolean onAnimationFrame = false;
+
+    @Override
+    public void run() {
+      if (!onAnimationFrame) {
+        onAnimationFrame = true;
+        ViewCompat.postOnAnimation(AbsSeekbar.this, this);
+        return;
+      }
+      onAnimationFrame = false;
+      pendingValuesScheduled = 0;
+      applyPendingValues();
+    }
+  }
+
+  private class ZoomGestureListener extends GestureDetector.SimpleOnGestureListener
+      implements ScaleGestureDetector.OnScaleGestureListener {
+    @Override
+    public boolean onDown(MotionEvent e) {
+      if (zoomScroller != null) {
+        zoomScroller.abortAnimation();
+      }
+      return true;
+    }
+
+    @Override
+    public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+      if (scaleGestureDetector != null && scaleGestureDetector.isInProgress()) return false;
+      if (getParent() != null) {
+        getParent().requestDisallowInterceptTouchEvent(true);
+      }
+      setVisibleWindow(windowStart + windowSize * distanceX / trackBounds.width(), windowSize);
+      return true;
+    }
+
+    @Override
+    public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+      if (zoomScroller == null || windowSize >= 1) return false;
+      // Fling across the whole track as if it were laid out at the current zoom
+      flingTrackWidth = (int) (trackBounds.width() / windowSize);
+      int maxX = flingTrackWidth - (int) trackBounds.width();
+      zoomScroller.fling((int) (windowStart * flingTrackWidth), 0, (int) -velocityX, 0, 0, maxX, 0, 0);
+      ViewCompat.postInvalidateOnAnimation(AbsSeekbar.this);
+      return true;
+    }
+
+    @Override
+    public boolean onDoubleTap(MotionEvent e) {
+      if (windowSize <= 1.0 / maxZoom) {
+        resetZoom();
+      } else {
+        zoomAround(e.getX(), 2f);
+      }
+      return true;
+    }
+
+    @Override
+    public boolean onScaleBegin(ScaleGestureDetector detector) {
+      if (getParent() != null) {
+        getParent().requestDisallowInterceptTouchEvent(true);
+      }
+      return true;
+    }
+
+    @Override
+    public boolean onScale(ScaleGestureDetector detector) {
+      zoomAround(detector.getFocusX(), detector.getScaleFactor());
+      return true;
+    }
+
+    @Override
+    public void onScaleEnd(ScaleGestureDetector detector) {
+    }
   }
 
   void drawValueText(Canvas canvas, String text, Rect bounds) {
@@ -368,11 +1332,11 @@ public abstract class AbsSeekbar extends View {
   }
 
   private int getTrackLeftOffset() {
-    return (getThumbSize() / 2) + minLabelBounds.width() + (labelTextPadding * 2);
+    return (getThumbSize() / 2) + minLabelWidth + (labelTextPadding * 2);
   }
 
   private int getTrackRightOffset() {
-    return (getThumbSize() / 2) + maxLabelBounds.width() + (labelTextPadding * 2);
+    return (getThumbSize() / 2) + maxLabelWidth + (labelTextPadding * 2);
   }
 
   private int getThumbSize() {
@@ -383,4 +1347,12 @@ public abstract class AbsSeekbar extends View {
   public interface ValueFormatter {
     String formatValue(float value);
   }
+
+  /**
+   * A {@link ValueFormatter} that is given values in double precision, so labels still tell
+   * values apart at high zoom or across large domains such as timestamps.
+   */
+  public interface PreciseValueFormatter extends ValueFormatter {
+    String formatValue(double value);
+  }
 }
@@ -0,0 +1,111 @@
+package com.everseat.rangeseekbar;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Sorted numeric data attached to a seekbar, used for snapping, counts and the histogram overlay.
+ * Values must be in ascending order. Everything here is a binary search against {@link #get(int)},
+ * so implementations do not need to hold the data on the heap.
+ *
+ * @see SnapIndex
+ * @see MappedDataSource
+ */
+public abstract class DataSource {
+  public abstract int size();
+
+  public abstract double get(int index);
+
+  /**
+   * Returns the index of the first value that is not less than the given value, or {@link #size()}
+   * if there is none.
+   */
+  public int lowerBound(double value) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (get(mid) < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first value that is greater than the given value, or {@link #size()}
+   * if there is none.
+   */
+  public int upperBound(double value) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (get(mid) <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the value closest to the given value, or the value itself if there is no data.
+   */
+  public double nearest(double value) {
+    int size = size();
+    if (size == 0) return value;
+
+    int upper = lowerBound(value);
+    if (upper == 0) return get(0);
+    if (upper == size) return get(size - 1);
+    double below = get(upper - 1);
+    double above = get(upper);
+    return (value - below) <= (above - value) ? below : above;
+  }
+
+  /**
+   * Returns how many values fall within {@code [min, max]}.
+   */
+  public int count(double min, double max) {
+    if (max < min) return 0;
+    return upperBound(max) - lowerBound(min);
+  }
+
+  /**
+   * Counts the values within {@code [min, max]} into equally wide buckets. Every bucket but the
+   * last is half-open, so each value is counted once. Costs one binary search per bucket.
+   */
+  public void aggregate(double min, double max, @NonNull int[] outBuckets) {
+    int bucketCount = outBuckets.length;
+    if (bucketCount == 0) return;
+
+    double[] boundaries = new double[bucketCount + 1];
+    for (int i = 0; i <= bucketCount; i++) {
+      boundaries[i] = min + (max - min) * i / bucketCount;
+    }
+    aggregate(boundaries, 0, bucketCount, outBuckets);
+  }
+
+  /**
+   * Counts the values into the buckets {@code from} (inclusive) to {@code to} (exclusive), where
+   * bucket {@code i} lies between {@code boundaries[i]} and {@code boundaries[i + 1]}. Boundaries
+   * must be ascending. Every bucket but the last one is half-open. Counting a range of buckets at a
+   * time gives the same result as counting them all at once.
+   */
+  public void aggregate(@NonNull double[] boundaries, int from, int to, @NonNull int[] outBuckets) {
+    int lastBucket = boundaries.length - 2;
+    if (from >= to) return;
+
+    int start = lowerBound(boundaries[from]);
+    for (int i = from; i < to; i++) {
+      int end = i == lastBucket
+          ? upperBound(boundaries[i + 1])
+          : lowerBound(boundaries[i + 1]);
+      outBuckets[i] = Math.max(end - start, 0);
+      start = Math.max(start, end);
+    }
+  }
+}
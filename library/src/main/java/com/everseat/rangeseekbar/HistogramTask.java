@@ -0,0 +1,90 @@
+package com.everseat.rangeseekbar;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Counts the values of a {@link DataSource} into buckets on a background thread and hands the
+ * counts back through the given executor, the main thread by default. Buckets are processed in
+ * chunks so a task that is no longer needed, for example because the visible window moved, stops
+ * early.
+ */
+class HistogramTask implements Runnable {
+  private static final int CHUNK_SIZE = 32;
+  private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+  static final Executor MAIN_THREAD_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable runnable) {
+      MAIN_HANDLER.post(runnable);
+    }
+  };
+  private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "HistogramTask");
+      thread.setPriority(Thread.MIN_PRIORITY);
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final DataSource source;
+  private final double[] boundaries;
+  private final int bucketCount;
+  private final Executor callbackExecutor;
+  private final Callback callback;
+  private volatile boolean cancelled = false;
+
+  /**
+   * @param boundaries at least {@code bucketCount + 1} ascending bucket boundaries. The array must
+   * not change until the task finishes or is cancelled
+   * @param callbackExecutor runs the callback on the thread that owns the seekbar, which is also
+   * the thread that cancels the task
+   */
+  HistogramTask(DataSource source, double[] boundaries, int bucketCount, Executor callbackExecutor,
+      Callback callback) {
+    this.source = source;
+    this.boundaries = boundaries;
+    this.bucketCount = bucketCount;
+    this.callbackExecutor = callbackExecutor;
+    this.callback = callback;
+  }
+
+  static HistogramTask start(DataSource source, double[] boundaries, int bucketCount,
+      Executor callbackExecutor, Callback callback) {
+    HistogramTask task = new HistogramTask(source, boundaries, bucketCount, callbackExecutor, callback);
+    EXECUTOR.execute(task);
+    return task;
+  }
+
+  void cancel() {
+    cancelled = true;
+  }
+
+  @Override
+  public void run() {
+    final int[] counts = new int[bucketCount];
+    for (int chunk = 0; chunk < counts.length; chunk += CHUNK_SIZE) {
+      if (cancelled) return;
+      source.aggregate(boundaries, chunk, Math.min(chunk + CHUNK_SIZE, counts.length), counts);
+    }
+
+    callbackExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (!cancelled) {
+          callback.onHistogramReady(counts);
+        }
+      }
+    });
+  }
+
+  interface Callback {
+    void onHistogramReady(int[] counts);
+  }
+}
@@ -0,0 +1,90 @@
+package com.everseat.rangeseekbar;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link DataSource} backed by a memory-mapped file of sorted little-endian doubles or longs.
+ * Values are read straight from the mapping, so the data never has to fit on the heap. A single
+ * file can hold up to 2GB, around 268 million values.
+ *
+ * <p>Reads are safe from any thread.
+ */
+public class MappedDataSource extends DataSource implements Closeable {
+  public static final int TYPE_DOUBLE = 0;
+  public static final int TYPE_LONG = 1;
+
+  private final RandomAccessFile file;
+  private final int size;
+  private final DoubleBuffer doubles;
+  private final LongBuffer longs;
+
+  private MappedDataSource(RandomAccessFile file, MappedByteBuffer buffer, int type) {
+    this.file = file;
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (type == TYPE_DOUBLE) {
+      doubles = buffer.asDoubleBuffer();
+      longs = null;
+      size = doubles.limit();
+    } else {
+      doubles = null;
+      longs = buffer.asLongBuffer();
+      size = longs.limit();
+    }
+  }
+
+  /**
+   * Maps the given file of sorted little-endian values.
+   *
+   * @param type {@link #TYPE_DOUBLE} or {@link #TYPE_LONG}
+   */
+  @NonNull
+  public static MappedDataSource open(@NonNull File file, int type) throws IOException {
+    if (type != TYPE_DOUBLE && type != TYPE_LONG) {
+      throw new IllegalArgumentException("Unknown value type " + type);
+    }
+
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      long length = randomAccessFile.length();
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("File too large to map: " + length + " bytes");
+      }
+      // A trailing partial value is ignored
+      long mappedLength = length - (length % 8);
+      FileChannel channel = randomAccessFile.getChannel();
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, mappedLength);
+      return new MappedDataSource(randomAccessFile, buffer, type);
+    } catch (IOException e) {
+      randomAccessFile.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public double get(int index) {
+    return doubles != null ? doubles.get(index) : longs.get(index);
+  }
+
+  /**
+   * Closes the underlying file. The mapping stays readable until it is garbage collected.
+   */
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+}
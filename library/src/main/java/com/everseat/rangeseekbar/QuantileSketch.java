@@ -0,0 +1,327 @@
+package com.everseat.rangeseekbar;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A mergeable streaming quantile sketch with bounded memory, based on the KLL compactor
+ * hierarchy. Values can be added incrementally from any thread; memory stays around
+ * {@code 3 * k} values no matter how many are added. Reading the distribution never blocks on a
+ * thread that is adding values.
+ *
+ * <p>Use with {@link AbsSeekbar#setPercentileSketch(QuantileSketch)} to map the track to data
+ * percentiles instead of linear values.
+ */
+public class QuantileSketch {
+  private static final int DEFAULT_K = 200;
+  private static final float CAPACITY_DECAY = 2f / 3f;
+  private static final int MIN_CAPACITY = 2;
+  // Values added per lock acquisition in addAll
+  private static final int ADD_CHUNK_SIZE = 1024;
+  private static final Cdf EMPTY_CDF = new Cdf(new double[0], new double[0]);
+
+  private final int k;
+  private final Random random = new Random();
+
+  // Level h holds items that each stand for 2^h added values
+  private double[][] levels = new double[0][];
+  private int[] levelSizes = new int[0];
+  private int retained = 0;
+  private int maxRetained = 0;
+  private volatile long count = 0;
+
+  // Guards the levels. Readers of the CDF only try to take it, so they never wait for a writer
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile Cdf cdf = EMPTY_CDF;
+  private volatile boolean cdfStale = false;
+
+  public QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * @param k the accuracy parameter. The rank error is roughly proportional to {@code 1 / k}.
+   */
+  public QuantileSketch(int k) {
+    if (k < MIN_CAPACITY) {
+      throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY);
+    }
+    this.k = k;
+    grow();
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Public API
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  public void add(double value) {
+    lock.lock();
+    try {
+      append(0, value);
+      count++;
+      cdfStale = true;
+      if (retained >= maxRetained) {
+        compress();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void addAll(@NonNull double[] values) {
+    addAll(values, 0, values.length);
+  }
+
+  /**
+   * Adds the values a chunk at a time, releasing the lock in between so a large page does not
+   * hold up other writers for long.
+   */
+  public void addAll(@NonNull double[] values, int offset, int length) {
+    int end = offset + length;
+    for (int chunk = offset; chunk < end; chunk += ADD_CHUNK_SIZE) {
+      addChunk(values, chunk, Math.min(chunk + ADD_CHUNK_SIZE, end));
+    }
+  }
+
+  /**
+   * Adds everything summarized by {@code other} to this sketch. {@code other} is left unchanged.
+   */
+  public void merge(@NonNull QuantileSketch other) {
+    double[][] otherLevels;
+    long otherCount;
+    other.lock.lock();
+    try {
+      otherLevels = new double[other.levels.length][];
+      for (int h = 0; h < otherLevels.length; h++) {
+        otherLevels[h] = Arrays.copyOf(other.levels[h], other.levelSizes[h]);
+      }
+      otherCount = other.count;
+    } finally {
+      other.lock.unlock();
+    }
+
+    lock.lock();
+    try {
+      while (levels.length < otherLevels.length) {
+        grow();
+      }
+      for (int h = 0; h < otherLevels.length; h++) {
+        for (double value : otherLevels[h]) {
+          append(h, value);
+        }
+      }
+      count += otherCount;
+      cdfStale = true;
+      while (retained >= maxRetained) {
+        compress();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns an immutable snapshot of the distribution. The snapshot is cached until more values are
+   * added, so repeated calls are cheap. This never waits for a writer: while values are being
+   * added on another thread, the last snapshot is returned and the next call picks up the rest.
+   */
+  @NonNull
+  public Cdf getCdf() {
+    Cdf cdf = this.cdf;
+    if (!cdfStale) return cdf;
+    if (!lock.tryLock()) return cdf;
+
+    try {
+      if (cdfStale) {
+        this.cdf = buildCdf();
+        cdfStale = false;
+      }
+      return this.cdf;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Internal methods
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  private void addChunk(double[] values, int from, int to) {
+    lock.lock();
+    try {
+      for (int i = from; i < to; i++) {
+        append(0, values[i]);
+        count++;
+        if (retained >= maxRetained) {
+          compress();
+        }
+      }
+      cdfStale = true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void append(int level, double value) {
+    double[] items = levels[level];
+    if (levelSizes[level] == items.length) {
+      items = levels[level] = Arrays.copyOf(items, Math.max(items.length * 2, MIN_CAPACITY));
+    }
+    items[levelSizes[level]++] = value;
+    retained++;
+  }
+
+  private int capacity(int level) {
+    int depth = levels.length - level - 1;
+    return Math.max((int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)), MIN_CAPACITY);
+  }
+
+  private void grow() {
+    int height = levels.length + 1;
+    levels = Arrays.copyOf(levels, height);
+    levels[height - 1] = new double[0];
+    levelSizes = Arrays.copyOf(levelSizes, height);
+
+    maxRetained = 0;
+    for (int h = 0; h < height; h++) {
+      maxRetained += capacity(h);
+    }
+  }
+
+  /**
+   * Compacts the lowest level that is over capacity: its items are sorted and every other one,
+   * starting at a random offset, is promoted to the next level with twice the weight.
+   */
+  private void compress() {
+    for (int h = 0; h < levels.length; h++) {
+      if (levelSizes[h] < capacity(h)) continue;
+      if (h + 1 >= levels.length) {
+        grow();
+      }
+
+      double[] items = levels[h];
+      int size = levelSizes[h];
+      Arrays.sort(items, 0, size);
+
+      // An odd item out stays behind on this level
+      int pairs = size / 2;
+      int offset = random.nextBoolean() ? 1 : 0;
+      for (int i = 0; i < pairs; i++) {
+        append(h + 1, items[i * 2 + offset]);
+      }
+      if (size % 2 == 1) {
+        items[0] = items[size - 1];
+        levelSizes[h] = 1;
+      } else {
+        levelSizes[h] = 0;
+      }
+      retained -= pairs * 2;
+      return;
+    }
+  }
+
+  private Cdf buildCdf() {
+    double[] values = new double[0];
+    long[] weights = new long[0];
+    for (int h = 0; h < levels.length; h++) {
+      double[] level = Arrays.copyOf(levels[h], levelSizes[h]);
+      Arrays.sort(level);
+
+      // Merge the sorted level into what we have so far
+      int n = values.length + level.length;
+      double[] mergedValues = new double[n];
+      long[] mergedWeights = new long[n];
+      int i = 0;
+      int j = 0;
+      for (int m = 0; m < n; m++) {
+        if (j >= level.length || (i < values.length && values[i] <= level[j])) {
+          mergedValues[m] = values[i];
+          mergedWeights[m] = weights[i++];
+        } else {
+          mergedValues[m] = level[j++];
+          mergedWeights[m] = 1L << h;
+        }
+      }
+      values = mergedValues;
+      weights = mergedWeights;
+    }
+
+    // Each retained item sits at the middle of the rank interval it stands for
+    int n = values.length;
+    double[] ranks = new double[n];
+    long cumulative = 0;
+    for (int i = 0; i < n; i++) {
+      ranks[i] = cumulative + weights[i] / 2.0;
+      cumulative += weights[i];
+    }
+
+    // Stretch ranks so the smallest value maps to 0 and the largest to 1
+    if (n == 1) {
+      ranks[0] = 0.5;
+    } else if (n > 1) {
+      double first = ranks[0];
+      double span = ranks[n - 1] - first;
+      for (int i = 0; i < n; i++) {
+        ranks[i] = (ranks[i] - first) / span;
+      }
+    }
+    return new Cdf(values, ranks);
+  }
+
+  /**
+   * An immutable, piecewise-linear cumulative distribution. Lookups are binary searches and do
+   * not allocate.
+   */
+  public static class Cdf {
+    private final double[] values;
+    private final double[] ranks;
+
+    Cdf(double[] values, double[] ranks) {
+      this.values = values;
+      this.ranks = ranks;
+    }
+
+    public boolean isEmpty() {
+      return values.length == 0;
+    }
+
+    /**
+     * Returns the value below which the given fraction (0-1) of the data falls.
+     */
+    public double getQuantile(double fraction) {
+      return interpolate(ranks, values, fraction);
+    }
+
+    /**
+     * Returns the fraction (0-1) of the data that falls below the given value.
+     */
+    public double getRank(double value) {
+      if (values.length == 0) return 0;
+      if (value < values[0]) return 0;
+      if (value > values[values.length - 1]) return 1;
+      return interpolate(values, ranks, value);
+    }
+
+    private static double interpolate(double[] xs, double[] ys, double x) {
+      int n = xs.length;
+      if (n == 0) return x;
+      if (x <= xs[0]) return ys[0];
+      if (x >= xs[n - 1]) return ys[n - 1];
+
+      int index = Arrays.binarySearch(xs, x);
+      if (index >= 0) return ys[index];
+      int upper = -index - 1;
+      int lower = upper - 1;
+      double span = xs[upper] - xs[lower];
+      if (span == 0) return ys[lower];
+      return ys[lower] + (ys[upper] - ys[lower]) * (x - xs[lower]) / span;
+    }
+  }
+}
@@ -12,6 +12,8 @@ import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import static com.everseat.rangeseekbar.Util.dpToPx;
 import static com.everseat.rangeseekbar.Util.expandRect;
 import static com.everseat.rangeseekbar.Util.withinBounds;
@@ -24,14 +26,18 @@ public class RangeSeekbar extends AbsSeekbar {
   private Drawable rightThumbDrawable;
 
   // Size holders
-  private Rect sharedTextBounds = new Rect();
   private Rect leftThumbBounds = new Rect();
   private Rect rightThumbBounds = new Rect();
 
   // State values
   private int activeThumb = -1;
-  private float minValue = 0f;
-  private float maxValue = 1f;
+  private double minValue = 0;
+  private double maxValue = 1;
+  private boolean leftThumbVisible = true;
+  private boolean rightThumbVisible = true;
+  private static final AtomicReferenceFieldUpdater<RangeSeekbar, double[]> PENDING_RANGE =
+      AtomicReferenceFieldUpdater.newUpdater(RangeSeekbar.class, double[].class, "pendingRange");
+  private volatile double[] pendingRange;
 
   @Nullable private OnValueSetListener valueSetListener;
 
@@ -54,32 +60,38 @@ public class RangeSeekbar extends AbsSeekbar {
   }
 
   private void init(Context context, AttributeSet attrs) {
-    leftThumbDrawable = getThumbDrawable();
-    rightThumbDrawable = leftThumbDrawable.getConstantState().newDrawable();
+    updateThumbDrawables();
   }
 
   @Override
   public boolean onTouchEvent(MotionEvent event) {
     int action = MotionEventCompat.getActionMasked(event);
     switch (action) {
-      case MotionEvent.ACTION_DOWN: return handleDownEvent(event);
-      case MotionEvent.ACTION_MOVE: return handleMoveEvent(event);
-      case MotionEvent.ACTION_UP: return handleUpEvent();
-      default: return super.onTouchEvent(event);
+      case MotionEvent.ACTION_DOWN: return handleDownEvent(event) || dispatchZoomTouchEvent(event);
+      case MotionEvent.ACTION_MOVE: return activeThumb != -1 ? handleMoveEvent(event) : dispatchZoomTouchEvent(event);
+      case MotionEvent.ACTION_UP: return activeThumb != -1 ? handleUpEvent() : dispatchZoomTouchEvent(event);
+      // A parent took over the gesture, so the thumb is released where it is
+      case MotionEvent.ACTION_CANCEL: return activeThumb != -1 ? handleUpEvent() : dispatchZoomTouchEvent(event);
+      default: return dispatchZoomTouchEvent(event) || super.onTouchEvent(event);
     }
   }
 
   private boolean handleUpEvent() {
+    snapActiveThumb();
+
     // Notify OnValueSetListener
     if (valueSetListener != null) {
       if (activeThumb == THUMB_LEFT) {
-        valueSetListener.onMinValueSet(minValue);
+        valueSetListener.onMinValueSet((float) minValue);
       } else if (activeThumb == THUMB_RIGHT) {
-        valueSetListener.onMaxValueSet(maxValue);
+        valueSetListener.onMaxValueSet((float) maxValue);
       }
     }
+    if (activeThumb != -1) {
+      notifyGroup();
+    }
 
-    activeThumb = -1;
+    setActiveThumb(-1);
     invalidate();
     return true;
   }
@@ -105,7 +117,7 @@ public class RangeSeekbar extends AbsSeekbar {
         }
 
         // We want the center of the thumb drawable to be the deciding factor
-        minValue = Math.max(calculateValue((int) (leftThumbBounds.centerX() - getTrackBounds().left)), 0);
+        minValue = calculateValue((int) (leftThumbBounds.centerX() - getTrackBounds().left));
       }
     }
 
@@ -124,20 +136,38 @@ public class RangeSeekbar extends AbsSeekbar {
           setRectXPosition(rightThumbBounds, (int) (getTrackBounds().right - (rightThumbBounds.width()/2)));
         }
 
-        maxValue = Math.min(calculateValue((int) (rightThumbBounds.centerX() - getTrackBounds().left)), 1);
+        maxValue = calculateValue((int) (rightThumbBounds.centerX() - getTrackBounds().left));
       }
     }
 
+    snapActiveThumb();
     invalidate();
     return true;
   }
 
+  /**
+   * Moves the active thumb to the nearest value in the snap index, without letting it pass the
+   * other thumb.
+   */
+  private void snapActiveThumb() {
+    if (!isSnapEnabled()) return;
+
+    if (activeThumb == THUMB_LEFT) {
+      minValue = Math.min(snapValue(minValue), maxValue);
+      setRectCenterX(leftThumbBounds, valueToX(minValue));
+    } else if (activeThumb == THUMB_RIGHT) {
+      maxValue = Math.max(snapValue(maxValue), minValue);
+      setRectCenterX(rightThumbBounds, valueToX(maxValue));
+    }
+  }
+
   private boolean handleDownEvent(MotionEvent event) {
     float x = event.getX();
     float y = event.getY();
 
-    if (withinBounds(x, y, expandRect(leftThumbBounds, (int) dpToPx(getResources(), 4)))) {
-      activeThumb = THUMB_LEFT;
+    // Thumbs outside the visible window are clamped to the track edge and cannot be grabbed
+    if (leftThumbVisible && withinBounds(x, y, expandRect(leftThumbBounds, (int) dpToPx(getResources(), 4)))) {
+      setActiveThumb(THUMB_LEFT);
       if (getParent() != null) {
         getParent().requestDisallowInterceptTouchEvent(true);
       }
@@ -145,8 +175,8 @@ public class RangeSeekbar extends AbsSeekbar {
       return true;
     }
 
-    if (withinBounds(x, y, expandRect(rightThumbBounds, (int) dpToPx(getResources(), 4)))) {
-      activeThumb = THUMB_RIGHT;
+    if (rightThumbVisible && withinBounds(x, y, expandRect(rightThumbBounds, (int) dpToPx(getResources(), 4)))) {
+      setActiveThumb(THUMB_RIGHT);
       if (getParent() != null) {
         getParent().requestDisallowInterceptTouchEvent(true);
       }
@@ -158,14 +188,13 @@ public class RangeSeekbar extends AbsSeekbar {
   }
 
   @Override
-  protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-    super.onLayout(changed, left, top, right, bottom);
+  void layoutThumbs() {
     RectF trackBounds = getTrackBounds();
 
     // Right thumb
     int rightThumbSize = Math.max(rightThumbDrawable.getIntrinsicWidth(), rightThumbDrawable.getIntrinsicHeight());
     rightThumbBounds.set(rightThumbBounds.left, rightThumbBounds.top, rightThumbBounds.left + rightThumbSize, leftThumbBounds.top + rightThumbSize);
-    int centerX = (int) (trackBounds.left + trackBounds.width() * maxValue);
+    int centerX = valueToX(maxValue);
     int centerY = (int) trackBounds.centerY();
     setRectCenterX(rightThumbBounds, centerX);
     setRectCenterY(rightThumbBounds, centerY);
@@ -173,11 +202,14 @@ public class RangeSeekbar extends AbsSeekbar {
     // Left thumb
     int leftThumbSize = Math.max(leftThumbDrawable.getIntrinsicWidth(), leftThumbDrawable.getIntrinsicHeight());
     leftThumbBounds.set(leftThumbBounds.left, leftThumbBounds.top, leftThumbBounds.left + leftThumbSize, leftThumbBounds.top + leftThumbSize);
-    centerX = (int) (trackBounds.left + trackBounds.width() * minValue);
+    centerX = valueToX(minValue);
     centerY = (int) trackBounds.centerY();
     setRectCenterX(leftThumbBounds, centerX);
     setRectCenterY(leftThumbBounds, centerY);
 
+    // Thumbs whose values are outside the visible window are hidden
+    leftThumbVisible = activeThumb == THUMB_LEFT || isValueInWindow(minValue);
+    rightThumbVisible = activeThumb == THUMB_RIGHT || isValueInWindow(maxValue);
   }
 
   @Override
@@ -186,37 +218,74 @@ public class RangeSeekbar extends AbsSeekbar {
     onDrawThumb(canvas);
 
     // Draw left value text
-    String minValueText = formatValue(minValue);
-    measureText(minValueText, sharedTextBounds);
-    setRectXPosition(sharedTextBounds, leftThumbBounds.centerX() - (sharedTextBounds.width() / 2));
-    setRectYPosition(sharedTextBounds, leftThumbBounds.bottom + getValueTextPadding());
-    drawValueText(canvas, minValueText, sharedTextBounds);
+    if (leftThumbVisible) {
+      String minValueText = formatValue(minValue);
+      measureText(minValueText, sharedTextBounds);
+      setRectXPosition(sharedTextBounds, leftThumbBounds.centerX() - (sharedTextBounds.width() / 2));
+      setRectYPosition(sharedTextBounds, leftThumbBounds.bottom + getValueTextPadding());
+      drawValueText(canvas, minValueText, sharedTextBounds);
+    }
 
     // Draw right value text
-    String maxValueText = formatValue(maxValue);
-    measureText(maxValueText, sharedTextBounds);
-    setRectXPosition(sharedTextBounds, rightThumbBounds.centerX() - (sharedTextBounds.width() / 2));
-    setRectYPosition(sharedTextBounds, rightThumbBounds.bottom + getValueTextPadding());
-    drawValueText(canvas, maxValueText, sharedTextBounds);
+    if (rightThumbVisible) {
+      String maxValueText = formatValue(maxValue);
+      measureText(maxValueText, sharedTextBounds);
+      setRectXPosition(sharedTextBounds, rightThumbBounds.centerX() - (sharedTextBounds.width() / 2));
+      setRectYPosition(sharedTextBounds, rightThumbBounds.bottom + getValueTextPadding());
+      drawValueText(canvas, maxValueText, sharedTextBounds);
+    }
   }
 
   private void onDrawThumb(Canvas canvas) {
     // Right
-    rightThumbDrawable.setBounds(rightThumbBounds);
-    rightThumbDrawable.setState(activeThumb == THUMB_RIGHT ? STATE_PRESSED : STATE_DEFAULT);
-    rightThumbDrawable.draw(canvas);
+    if (rightThumbVisible) {
+      rightThumbDrawable.setBounds(rightThumbBounds);
+      rightThumbDrawable.draw(canvas);
+    }
 
     // Left
-    leftThumbDrawable.setBounds(leftThumbBounds);
+    if (leftThumbVisible) {
+      leftThumbDrawable.setBounds(leftThumbBounds);
+      leftThumbDrawable.draw(canvas);
+    }
+  }
+
+  /**
+   * Updates the drawable states only when the active thumb changes, rather than on every frame.
+   */
+  private void setActiveThumb(int thumb) {
+    if (thumb == activeThumb) return;
+    activeThumb = thumb;
+    rightThumbDrawable.setState(activeThumb == THUMB_RIGHT ? STATE_PRESSED : STATE_DEFAULT);
     leftThumbDrawable.setState(activeThumb == THUMB_LEFT ? STATE_PRESSED : STATE_DEFAULT);
-    leftThumbDrawable.draw(canvas);
   }
 
   //////////////////////////////////////////////////////////////////////////////////////////////////
   // Public API
   //////////////////////////////////////////////////////////////////////////////////////////////////
 
+  /**
+   * Replaces both thumbs with copies of the given drawable. A thumb being dragged stays pressed.
+   */
+  @Override
+  public void setThumbDrawable(Drawable drawable) {
+    super.setThumbDrawable(drawable);
+    // The super constructor sets the first thumb before this class is initialized, init() picks
+    // it up from there
+    if (leftThumbBounds == null) return;
+    updateThumbDrawables();
+    requestLayout();
+    invalidate();
+  }
+
   public void setCurrentRange(float min, float max) {
+    setCurrentRange((double) min, (double) max);
+  }
+
+  /**
+   * Sets the range in double precision, for values a float cannot resolve at high zoom.
+   */
+  public void setCurrentRange(double min, double max) {
     minValue = min;
     maxValue = max;
 
@@ -224,6 +293,55 @@ public class RangeSeekbar extends AbsSeekbar {
       requestLayout();
       invalidate();
     }
+    notifyGroup();
+  }
+
+  /**
+   * Thread-safe version of {@link #setCurrentRange(float, float)}. Only the latest range posted
+   * before the next frame is applied, and a thumb the user is dragging keeps its value.
+   */
+  public void postCurrentRange(float min, float max) {
+    postCurrentRange((double) min, (double) max);
+  }
+
+  /**
+   * Thread-safe version of {@link #setCurrentRange(double, double)}.
+   */
+  public void postCurrentRange(double min, double max) {
+    PENDING_RANGE.set(this, new double[] {min, max});
+    schedulePendingValues();
+  }
+
+  /**
+   * Returns how many values of the data source fall within the current range, or 0 if no data
+   * source is attached.
+   */
+  public int getCountInRange() {
+    DataSource dataSource = getDataSource();
+    if (dataSource == null) return 0;
+    return dataSource.count(minValue, maxValue);
+  }
+
+  public float getCurrentMinValue() {
+    return (float) minValue;
+  }
+
+  public float getCurrentMaxValue() {
+    return (float) maxValue;
+  }
+
+  /**
+   * Returns the min value without rounding it to a float.
+   */
+  public double getPreciseMinValue() {
+    return minValue;
+  }
+
+  /**
+   * Returns the max value without rounding it to a float.
+   */
+  public double getPreciseMaxValue() {
+    return maxValue;
   }
 
   public void setOnValueSetListener(@Nullable RangeSeekbar.OnValueSetListener valueSetListener) {
@@ -234,6 +352,39 @@ public class RangeSeekbar extends AbsSeekbar {
   // Internal methods
   //////////////////////////////////////////////////////////////////////////////////////////////////
 
+  /**
+   * Builds both thumbs from the thumb drawable. They share a state of their own, so changing the
+   * thumb changes both of them but no other seekbar. A drawable without a constant state is drawn
+   * for both thumbs.
+   */
+  private void updateThumbDrawables() {
+    leftThumbDrawable = getThumbDrawable().mutate();
+    Drawable.ConstantState state = leftThumbDrawable.getConstantState();
+    rightThumbDrawable = state != null ? state.newDrawable() : leftThumbDrawable;
+    leftThumbDrawable.setState(activeThumb == THUMB_LEFT ? STATE_PRESSED : STATE_DEFAULT);
+    rightThumbDrawable.setState(activeThumb == THUMB_RIGHT ? STATE_PRESSED : STATE_DEFAULT);
+  }
+
+  @Override
+  void resetValues(double min, double max) {
+    setCurrentRange(min, max);
+  }
+
+  @Override
+  void applyPendingValues() {
+    super.applyPendingValues();
+    double[] range = PENDING_RANGE.getAndSet(this, null);
+    if (range == null) return;
+
+    if (activeThumb == THUMB_LEFT) {
+      setCurrentRange(minValue, Math.max(range[1], minValue));
+    } else if (activeThumb == THUMB_RIGHT) {
+      setCurrentRange(Math.min(range[0], maxValue), maxValue);
+    } else {
+      setCurrentRange(range[0], range[1]);
+    }
+  }
+
   @Override
   protected void onDrawTrackDecoration(Canvas canvas, Paint sharedPaint) {
     sharedPaint.reset();
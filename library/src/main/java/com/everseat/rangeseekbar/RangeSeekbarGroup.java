@@ -0,0 +1,274 @@
+package com.everseat.rangeseekbar;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coordinates several {@link RangeSeekbar} and {@link Seekbar} instances so that value changes
+ * made within one frame, or within one explicit transaction, are delivered as a single
+ * {@link Snapshot} instead of one callback per bar.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+public class RangeSeekbarGroup {
+  private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+  private final Map<String, AbsSeekbar> members = new LinkedHashMap<>();
+
+  // State values
+  private int transactionDepth = 0;
+  private boolean changed = false;
+  private boolean dispatchScheduled = false;
+
+  @Nullable private OnGroupChangeListener groupChangeListener;
+  @Nullable private Choreographer.FrameCallback dispatchFrameCallback;
+
+  private final Runnable dispatchRunnable = new Runnable() {
+    @Override
+    public void run() {
+      dispatchScheduled = false;
+      if (transactionDepth == 0) {
+        dispatchChange();
+      }
+    }
+  };
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Public API
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  public void addSeekbar(@NonNull String key, @NonNull RangeSeekbar seekbar) {
+    addMember(key, seekbar);
+  }
+
+  public void addSeekbar(@NonNull String key, @NonNull Seekbar seekbar) {
+    addMember(key, seekbar);
+  }
+
+  public void removeSeekbar(@NonNull String key) {
+    AbsSeekbar seekbar = members.remove(key);
+    if (seekbar != null && seekbar.group == this) {
+      seekbar.group = null;
+    }
+  }
+
+  public void setOnGroupChangeListener(@Nullable OnGroupChangeListener groupChangeListener) {
+    this.groupChangeListener = groupChangeListener;
+  }
+
+  /**
+   * Starts collecting value changes. The listener is notified once, when the outermost
+   * {@link #endTransaction()} is called, if any bar changed in between.
+   */
+  public void beginTransaction() {
+    transactionDepth++;
+  }
+
+  public void endTransaction() {
+    if (transactionDepth == 0) {
+      throw new IllegalStateException("endTransaction() called without beginTransaction()");
+    }
+    transactionDepth--;
+    if (transactionDepth == 0) {
+      dispatchChange();
+    }
+  }
+
+  /**
+   * Returns the current values of every bar in the group.
+   */
+  @NonNull
+  public Snapshot getSnapshot() {
+    Map<String, double[]> values = new LinkedHashMap<>();
+    for (Map.Entry<String, AbsSeekbar> entry : members.entrySet()) {
+      AbsSeekbar seekbar = entry.getValue();
+      if (seekbar instanceof RangeSeekbar) {
+        RangeSeekbar rangeSeekbar = (RangeSeekbar) seekbar;
+        values.put(entry.getKey(), new double[] {rangeSeekbar.getPreciseMinValue(), rangeSeekbar.getPreciseMaxValue()});
+      } else if (seekbar instanceof Seekbar) {
+        double value = ((Seekbar) seekbar).getPreciseValue();
+        values.put(entry.getKey(), new double[] {value, value});
+      }
+    }
+    return new Snapshot(values);
+  }
+
+  /**
+   * Applies every value in the given snapshot to its bar. Each bar is laid out and invalidated
+   * once, and the group listener is notified once with the resulting values.
+   */
+  public void applySnapshot(@NonNull Snapshot snapshot) {
+    beginTransaction();
+    changed = true;
+    try {
+      for (Map.Entry<String, double[]> entry : snapshot.values.entrySet()) {
+        AbsSeekbar seekbar = members.get(entry.getKey());
+        double[] value = entry.getValue();
+        if (seekbar instanceof RangeSeekbar) {
+          ((RangeSeekbar) seekbar).setCurrentRange(value[0], value[1]);
+        } else if (seekbar instanceof Seekbar) {
+          ((Seekbar) seekbar).setCurrentValue(value[0]);
+        }
+      }
+    } finally {
+      endTransaction();
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Internal methods
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  private void addMember(String key, AbsSeekbar seekbar) {
+    if (seekbar.group != null && seekbar.group != this) {
+      throw new IllegalArgumentException("Seekbar already belongs to another group");
+    }
+    removeSeekbar(key);
+    members.put(key, seekbar);
+    seekbar.group = this;
+  }
+
+  /**
+   * Called by a member whenever its value changes, either from the user or from a setter.
+   */
+  void onMemberChanged(AbsSeekbar seekbar) {
+    changed = true;
+    if (transactionDepth == 0 && !dispatchScheduled) {
+      dispatchScheduled = true;
+      postDispatch();
+    }
+  }
+
+  /**
+   * Dispatches on the next frame. The frame callback is posted to the choreographer rather than
+   * to a member, so a detached member does not hold it back. Before API 16 there is no
+   * choreographer, so the dispatch runs on the next pass of the main looper instead.
+   */
+  private void postDispatch() {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+      MAIN_HANDLER.post(dispatchRunnable);
+      return;
+    }
+    if (dispatchFrameCallback == null) {
+      dispatchFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+          dispatchRunnable.run();
+        }
+      };
+    }
+    Choreographer.getInstance().postFrameCallback(dispatchFrameCallback);
+  }
+
+  private void dispatchChange() {
+    if (!changed) return;
+    changed = false;
+    if (groupChangeListener != null) {
+      groupChangeListener.onGroupChanged(getSnapshot());
+    }
+  }
+
+  /**
+   * An immutable set of values keyed by the name each bar was added with. A {@link Seekbar} has
+   * the same min and max value.
+   */
+  public static class Snapshot {
+    final Map<String, double[]> values;
+
+    Snapshot(Map<String, double[]> values) {
+      this.values = values;
+    }
+
+    public Set<String> getKeys() {
+      return Collections.unmodifiableSet(values.keySet());
+    }
+
+    public boolean contains(@NonNull String key) {
+      return values.containsKey(key);
+    }
+
+    public float getMinValue(@NonNull String key) {
+      return (float) getValues(key)[0];
+    }
+
+    public float getMaxValue(@NonNull String key) {
+      return (float) getValues(key)[1];
+    }
+
+    public float getValue(@NonNull String key) {
+      return (float) getValues(key)[0];
+    }
+
+    /**
+     * Returns the min value without rounding it to a float.
+     */
+    public double getPreciseMinValue(@NonNull String key) {
+      return getValues(key)[0];
+    }
+
+    /**
+     * Returns the max value without rounding it to a float.
+     */
+    public double getPreciseMaxValue(@NonNull String key) {
+      return getValues(key)[1];
+    }
+
+    /**
+     * Returns the value without rounding it to a float.
+     */
+    public double getPreciseValue(@NonNull String key) {
+      return getValues(key)[0];
+    }
+
+    private double[] getValues(String key) {
+      double[] value = values.get(key);
+      if (value == null) {
+        throw new IllegalArgumentException("No value for key " + key);
+      }
+      return value;
+    }
+
+    /**
+     * Builds a snapshot to pass to {@link RangeSeekbarGroup#applySnapshot(Snapshot)}, for example
+     * for presets or a reset.
+     */
+    public static class Builder {
+      private final Map<String, double[]> values = new LinkedHashMap<>();
+
+      public Builder setRange(@NonNull String key, float min, float max) {
+        return setRange(key, (double) min, (double) max);
+      }
+
+      public Builder setRange(@NonNull String key, double min, double max) {
+        values.put(key, new double[] {min, max});
+        return this;
+      }
+
+      public Builder setValue(@NonNull String key, float value) {
+        return setValue(key, (double) value);
+      }
+
+      public Builder setValue(@NonNull String key, double value) {
+        values.put(key, new double[] {value, value});
+        return this;
+      }
+
+      public Snapshot build() {
+        return new Snapshot(new LinkedHashMap<>(values));
+      }
+    }
+  }
+
+  public interface OnGroupChangeListener {
+    void onGroupChanged(@NonNull Snapshot snapshot);
+  }
+}
@@ -11,6 +11,8 @@ import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 import static com.everseat.rangeseekbar.Util.dpToPx;
 import static com.everseat.rangeseekbar.Util.expandRect;
 import static com.everseat.rangeseekbar.Util.withinBounds;
@@ -23,7 +25,12 @@ public class Seekbar extends AbsSeekbar {
   private Rect thumbBounds = new Rect();
 
   // State values
-  private float currentValue = 0f;
+  private double currentValue = 0;
+  private boolean dragging = false;
+  private boolean thumbVisible = true;
+  private static final AtomicLongFieldUpdater<Seekbar> PENDING_VALUE =
+      AtomicLongFieldUpdater.newUpdater(Seekbar.class, "pendingValue");
+  private volatile long pendingValue = NO_PENDING_VALUE;
 
   @Nullable private OnValueSetListener valueSetListener;
 
@@ -46,18 +53,22 @@ public class Seekbar extends AbsSeekbar {
       case MotionEvent.ACTION_DOWN:
         float x = event.getX();
         float y = event.getY();
-        if (withinBounds(x, y, expandRect(thumbBounds, (int) dpToPx(getResources(), 4)))) {
+        // A thumb outside the visible window is clamped to the track edge and cannot be grabbed
+        if (thumbVisible && withinBounds(x, y, expandRect(thumbBounds, (int) dpToPx(getResources(), 4)))) {
           if (getParent() != null) {
             getParent().requestDisallowInterceptTouchEvent(true);
           }
 
+          dragging = true;
           getThumbDrawable().setState(STATE_PRESSED);
           invalidate();
           return true;
         }
 
-        return false;
+        return dispatchZoomTouchEvent(event);
       case MotionEvent.ACTION_MOVE:
+        if (!dragging) return dispatchZoomTouchEvent(event);
+
         // We only support a horizontal bar at the moment
         int radius = thumbBounds.width() / 2;
         float newX = (int) event.getX() - radius;
@@ -73,38 +84,47 @@ public class Seekbar extends AbsSeekbar {
 
         // We want the center of the thumb drawable to be the deciding factor
         currentValue = calculateValue((int) (newX + radius - getTrackBounds().left));
+        snapThumb();
 
         invalidate();
         return true;
       case MotionEvent.ACTION_UP:
+      // A parent took over the gesture, so the thumb is released where it is
+      case MotionEvent.ACTION_CANCEL:
+        if (!dragging) return dispatchZoomTouchEvent(event);
+        snapThumb();
+
         // Notify OnValueSetListener
         if (valueSetListener != null) {
-          valueSetListener.onValueSet(currentValue);
+          valueSetListener.onValueSet((float) currentValue);
         }
+        notifyGroup();
 
+        dragging = false;
         getThumbDrawable().setState(STATE_DEFAULT);
         invalidate();
         return true;
       default:
-        return super.onTouchEvent(event);
+        return dispatchZoomTouchEvent(event) || super.onTouchEvent(event);
     }
   }
 
   @Override
-  protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-    super.onLayout(changed, left, top, right, bottom);
+  void layoutThumbs() {
     RectF trackBounds = getTrackBounds();
 
     int thumbSize = Math.max(getThumbDrawable().getIntrinsicWidth(), getThumbDrawable().getIntrinsicHeight());
-    float offset = currentValue * trackBounds.width();
-    int x = (int) (trackBounds.left + offset) - (thumbSize / 2);
+    int x = valueToX(currentValue) - (thumbSize / 2);
     int y = (int) (trackBounds.centerY() - (thumbSize / 2));
     thumbBounds.set(x, y, x + thumbSize, y + thumbSize);
+    thumbVisible = dragging || isValueInWindow(currentValue);
   }
 
   @Override
   protected void onDraw(Canvas canvas) {
     super.onDraw(canvas);
+    // A value outside the visible window only shows as the fill reaching the track edge
+    if (!thumbVisible) return;
     getThumbDrawable().setBounds(thumbBounds);
     getThumbDrawable().draw(canvas);
 
@@ -125,14 +145,45 @@ public class Seekbar extends AbsSeekbar {
   }
 
   public void setCurrentValue(float value) {
+    setCurrentValue((double) value);
+  }
+
+  /**
+   * Sets the value in double precision, for values a float cannot resolve at high zoom.
+   */
+  public void setCurrentValue(double value) {
     currentValue = value;
     if (!ViewCompat.isInLayout(this)) {
       requestLayout();
       invalidate();
     }
+    notifyGroup();
+  }
+
+  /**
+   * Thread-safe version of {@link #setCurrentValue(float)}. Only the latest value posted before
+   * the next frame is applied, and it is dropped if the user is dragging the thumb.
+   */
+  public void postCurrentValue(float value) {
+    postCurrentValue((double) value);
+  }
+
+  /**
+   * Thread-safe version of {@link #setCurrentValue(double)}.
+   */
+  public void postCurrentValue(double value) {
+    PENDING_VALUE.set(this, encodePendingDouble(value));
+    schedulePendingValues();
   }
 
   public float getCurrentValue() {
+    return (float) currentValue;
+  }
+
+  /**
+   * Returns the value without rounding it to a float.
+   */
+  public double getPreciseValue() {
     return currentValue;
   }
 
@@ -140,6 +191,28 @@ public class Seekbar extends AbsSeekbar {
   // Internal methods
   //////////////////////////////////////////////////////////////////////////////////////////////////
 
+  boolean isDragging() {
+    return dragging;
+  }
+
+  Rect getThumbBounds() {
+    return thumbBounds;
+  }
+
+  @Override
+  void resetValues(double min, double max) {
+    setCurrentValue(min);
+  }
+
+  @Override
+  void applyPendingValues() {
+    super.applyPendingValues();
+    long value = PENDING_VALUE.getAndSet(this, NO_PENDING_VALUE);
+    if (value != NO_PENDING_VALUE && !dragging) {
+      setCurrentValue(decodePendingDouble(value));
+    }
+  }
+
   @Override
   protected void onDrawTrackDecoration(Canvas canvas, Paint sharedPaint) {
     sharedPaint.reset();
@@ -152,6 +225,15 @@ public class Seekbar extends AbsSeekbar {
     canvas.drawRoundRect(fill, getTrackHeight() / 2, getTrackHeight() / 2, sharedPaint);
   }
 
+  /**
+   * Moves the thumb to the nearest value in the snap index.
+   */
+  private void snapThumb() {
+    if (!isSnapEnabled()) return;
+    currentValue = snapValue(currentValue);
+    setRectCenterX(thumbBounds, valueToX(currentValue));
+  }
+
   protected void onDrawValueText(Canvas canvas, Rect textBounds, String text) {
     drawValueText(canvas, text, textBounds);
   }
@@ -0,0 +1,51 @@
+package com.everseat.rangeseekbar;
+
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paints shared by every seekbar instance, so that a screen with many seekbars does not hold a
+ * set of paints per instance.
+ *
+ * <p>Text paints are immutable once created and keyed by text size. The scratch paint is reset
+ * before every use and there is one per drawing thread, so seekbars drawn on a render thread do
+ * not share it with those drawn on the main thread.
+ */
+final class SharedPaints {
+  private static final Map<Float, Paint> TEXT_PAINTS = new HashMap<>();
+  private static final ThreadLocal<Paint> SCRATCH_PAINT = new ThreadLocal<Paint>() {
+    @Override
+    protected Paint initialValue() {
+      return new Paint(Paint.ANTI_ALIAS_FLAG);
+    }
+  };
+
+  private SharedPaints() {
+  }
+
+  /**
+   * Returns an anti-aliased text paint with the given size. Callers must not modify it.
+   */
+  static synchronized Paint textPaint(float textSize) {
+    Paint paint = TEXT_PAINTS.get(textSize);
+    if (paint == null) {
+      paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+      paint.setTextSize(textSize);
+      TEXT_PAINTS.put(textSize, paint);
+    }
+    return paint;
+  }
+
+  /**
+   * Returns this thread's scratch paint, reset and anti-aliased.
+   */
+  static Paint scratchPaint() {
+    Paint paint = SCRATCH_PAINT.get();
+    paint.reset();
+    paint.setAntiAlias(true);
+    return paint;
+  }
+}
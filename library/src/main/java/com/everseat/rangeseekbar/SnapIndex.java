@@ -0,0 +1,129 @@
+package com.everseat.rangeseekbar;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * A sorted set of values held on the heap that thumbs snap to, so a range only ever starts or ends
+ * on a value that exists in the data. Values are doubles, which hold timestamps in epoch seconds or
+ * milliseconds exactly.
+ *
+ * <p>Updates copy the values into a new array and publish it in one write, so they can be made
+ * from a background thread while the seekbar keeps snapping against the previous array. Lookups
+ * are a binary search and do not allocate.
+ */
+public class SnapIndex extends DataSource {
+  private volatile double[] values;
+
+  public SnapIndex() {
+    values = new double[0];
+  }
+
+  public SnapIndex(@NonNull double[] values) {
+    this.values = sortedCopy(values);
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Public API
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Replaces every value in the index.
+   */
+  public synchronized void replaceAll(@NonNull double[] newValues) {
+    values = sortedCopy(newValues);
+  }
+
+  /**
+   * Merges the given values into the index.
+   */
+  public synchronized void append(@NonNull double[] newValues) {
+    double[] current = values;
+    double[] added = sortedCopy(newValues);
+    double[] merged = new double[current.length + added.length];
+
+    int i = 0;
+    int j = 0;
+    for (int m = 0; m < merged.length; m++) {
+      if (j >= added.length || (i < current.length && current[i] <= added[j])) {
+        merged[m] = current[i++];
+      } else {
+        merged[m] = added[j++];
+      }
+    }
+    values = merged;
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public double get(int index) {
+    return values[index];
+  }
+
+  @Override
+  public int lowerBound(double value) {
+    double[] values = this.values;
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public int upperBound(double value) {
+    double[] values = this.values;
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the value in the index closest to the given value, or the value itself if the index
+   * is empty.
+   */
+  @Override
+  public double nearest(double value) {
+    double[] values = this.values;
+    if (values.length == 0) return value;
+
+    int index = Arrays.binarySearch(values, value);
+    if (index >= 0) return values[index];
+
+    int upper = -index - 1;
+    if (upper == 0) return values[0];
+    if (upper == values.length) return values[values.length - 1];
+    double below = values[upper - 1];
+    double above = values[upper];
+    return (value - below) <= (above - value) ? below : above;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Internal methods
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  private static double[] sortedCopy(double[] values) {
+    double[] copy = Arrays.copyOf(values, values.length);
+    Arrays.sort(copy);
+    return copy;
+  }
+}
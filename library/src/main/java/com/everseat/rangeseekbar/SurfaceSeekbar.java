@@ -0,0 +1,589 @@
+package com.everseat.rangeseekbar;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.StringRes;
+import android.support.v4.view.MotionEventCompat;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.View;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.everseat.rangeseekbar.AbsSeekbar.NO_PENDING_VALUE;
+import static com.everseat.rangeseekbar.AbsSeekbar.decodePendingDouble;
+import static com.everseat.rangeseekbar.AbsSeekbar.decodePendingValue;
+import static com.everseat.rangeseekbar.AbsSeekbar.encodePendingDouble;
+import static com.everseat.rangeseekbar.AbsSeekbar.encodePendingValue;
+import static com.everseat.rangeseekbar.Util.dpToPx;
+import static com.everseat.rangeseekbar.Util.withinBounds;
+
+/**
+ * A {@link Seekbar} that renders on its own thread into a Surface, for values that change at high
+ * rates. It takes the same attributes as {@link Seekbar}, and every setter of {@link AbsSeekbar}
+ * and {@link Seekbar} is available here and safe to call from any thread.
+ *
+ * <p>Values can be set from any thread and are rendered without going through the main looper.
+ * Touch events are received on the main thread and handed to the render thread through lock-free
+ * queues. The surface keeps the default Z order, behind the window, so it is filled with the
+ * view's background color, or the theme's window background if the view has none.
+ *
+ * <p>Not supported by this backend:
+ * <ul>
+ * <li>Zoom gestures. {@code zoomEnabled} is ignored.</li>
+ * <li>Getters for the styling and data set here. Only {@link #getCurrentValue()},
+ * {@link #getPreciseValue()} and {@link #getProgress()} are mirrored back from the render
+ * thread.</li>
+ * <li>Changing the thumb drawable returned by the seekbar, since it is drawn on the render thread.
+ * Pass a new drawable to {@link #setThumbDrawable(Drawable)} instead.</li>
+ * </ul>
+ */
+public class SurfaceSeekbar extends SurfaceView implements SurfaceHolder.Callback {
+  // Only touched on the render thread once constructed
+  private final Seekbar seekbar;
+
+  // State handed over to the render thread
+  private final AtomicBoolean renderRequested = new AtomicBoolean();
+  private final AtomicLong pendingValue = new AtomicLong(NO_PENDING_VALUE);
+  private final AtomicLong pendingProgress = new AtomicLong(NO_PENDING_VALUE);
+  private final AtomicLong pendingSize = new AtomicLong(NO_PENDING_VALUE);
+  private final ConcurrentLinkedQueue<MotionEvent> pendingTouchEvents = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Runnable> pendingChanges = new ConcurrentLinkedQueue<>();
+
+  // State handed back from the render thread
+  private volatile double currentValue = 0;
+  private volatile float currentProgress = 0f;
+  private final Rect thumbBounds = new Rect();
+  private volatile int thumbLeft;
+  private volatile int thumbTop;
+  private volatile int thumbRight;
+  private volatile int thumbBottom;
+  @Nullable private volatile RenderThread renderThread;
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private volatile int backgroundColor;
+  @Nullable private volatile Seekbar.OnValueSetListener valueSetListener;
+
+  public SurfaceSeekbar(Context context) {
+    super(context);
+    seekbar = new Seekbar(context);
+    init(context);
+  }
+
+  public SurfaceSeekbar(Context context, AttributeSet attrs) {
+    super(context, attrs);
+    seekbar = new Seekbar(context, attrs);
+    init(context);
+  }
+
+  public SurfaceSeekbar(Context context, AttributeSet attrs, int defStyleAttr) {
+    super(context, attrs, defStyleAttr);
+    seekbar = new Seekbar(context, attrs, defStyleAttr);
+    init(context);
+  }
+
+  private void init(Context context) {
+    // Zoom gestures would run main-looper handlers against the render thread's seekbar
+    seekbar.setZoomEnabled(false);
+    // Histogram counts are handed to the render thread and drawn on the next frame
+    seekbar.setHistogramCallbackExecutor(new Executor() {
+      @Override
+      public void execute(Runnable runnable) {
+        queueChange(runnable);
+      }
+    });
+
+    // A background drawn by the view would cover the surface, so it is drawn into the surface
+    Drawable background = getBackground();
+    if (background instanceof ColorDrawable) {
+      backgroundColor = ((ColorDrawable) background).getColor();
+      setBackgroundDrawable(null);
+    } else {
+      TypedArray ta = context.obtainStyledAttributes(new int[] {android.R.attr.colorBackground});
+      backgroundColor = ta.getColor(0, Color.WHITE);
+      ta.recycle();
+    }
+
+    getHolder().setFormat(PixelFormat.OPAQUE);
+    getHolder().addCallback(this);
+
+    seekbar.setOnValueSetListener(new Seekbar.OnValueSetListener() {
+      @Override
+      public void onValueSet(final float value) {
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            Seekbar.OnValueSetListener listener = valueSetListener;
+            if (listener != null) {
+              listener.onValueSet(value);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  @Override
+  public void surfaceCreated(SurfaceHolder holder) {
+    RenderThread thread = new RenderThread(holder);
+    renderThread = thread;
+    thread.start();
+  }
+
+  @Override
+  public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+    pendingSize.set(((long) width << 32) | (height & 0xFFFFFFFFL));
+    requestRender();
+  }
+
+  @Override
+  public void surfaceDestroyed(SurfaceHolder holder) {
+    RenderThread thread = renderThread;
+    renderThread = null;
+    if (thread == null) return;
+
+    // The surface must not be touched once this returns
+    thread.running = false;
+    LockSupport.unpark(thread);
+    boolean interrupted = false;
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean onTouchEvent(MotionEvent event) {
+    if (!isEnabled()) return false;
+
+    int action = MotionEventCompat.getActionMasked(event);
+    if (action == MotionEvent.ACTION_DOWN) {
+      int slop = (int) dpToPx(getResources(), 4);
+      thumbBounds.set(thumbLeft - slop, thumbTop - slop, thumbRight + slop, thumbBottom + slop);
+      if (!withinBounds(event.getX(), event.getY(), thumbBounds)) return false;
+      if (getParent() != null) {
+        getParent().requestDisallowInterceptTouchEvent(true);
+      }
+    }
+
+    pendingTouchEvents.offer(MotionEvent.obtain(event));
+    requestRender();
+    return true;
+  }
+
+  @Override
+  public void setEnabled(final boolean enabled) {
+    super.setEnabled(enabled);
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setEnabled(enabled);
+      }
+    });
+  }
+
+  /**
+   * Sets the color the surface is filled with behind the seekbar.
+   */
+  @Override
+  public void setBackgroundColor(@ColorInt int color) {
+    backgroundColor = color;
+    requestRender();
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Public API
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Sets the current value. Safe to call from any thread; only the latest value set before the
+   * next frame is rendered, and it is dropped if the user is dragging the thumb.
+   */
+  public void setCurrentValue(float value) {
+    setCurrentValue((double) value);
+  }
+
+  /**
+   * Sets the current value without rounding it to a float. Safe to call from any thread.
+   */
+  public void setCurrentValue(double value) {
+    pendingValue.set(encodePendingDouble(value));
+    requestRender();
+  }
+
+  /**
+   * Returns the value most recently rendered.
+   */
+  public float getCurrentValue() {
+    return (float) currentValue;
+  }
+
+  /**
+   * Returns the value most recently rendered, without rounding it to a float.
+   */
+  public double getPreciseValue() {
+    return currentValue;
+  }
+
+  /**
+   * Sets the progress. Safe to call from any thread.
+   */
+  public void setProgress(float progress) {
+    pendingProgress.set(encodePendingValue(progress));
+    requestRender();
+  }
+
+  /**
+   * Returns the progress most recently rendered.
+   */
+  public float getProgress() {
+    return currentProgress;
+  }
+
+  /**
+   * Sets the listener notified when the user finishes dragging. It is called on the main thread.
+   */
+  public void setOnValueSetListener(@Nullable Seekbar.OnValueSetListener valueSetListener) {
+    this.valueSetListener = valueSetListener;
+  }
+
+  public void setValueFormatter(@NonNull final AbsSeekbar.ValueFormatter formatter) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setValueFormatter(formatter);
+      }
+    });
+  }
+
+  public void setTrackColor(@ColorInt final int color) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setTrackColor(color);
+      }
+    });
+  }
+
+  public void setTrackFillColor(@ColorInt final int color) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setTrackFillColor(color);
+      }
+    });
+  }
+
+  public void setTrackHeight(final int heightInPx) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setTrackHeight(heightInPx);
+        seekbar.forceLayout();
+      }
+    });
+  }
+
+  public void setMinLabelText(@StringRes int text) {
+    setMinLabelText(getResources().getString(text));
+  }
+
+  public void setMinLabelText(@NonNull final String text) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setMinLabelText(text);
+        seekbar.forceLayout();
+      }
+    });
+  }
+
+  public void setMaxLabelText(@StringRes int text) {
+    setMaxLabelText(getResources().getString(text));
+  }
+
+  public void setMaxLabelText(@NonNull final String text) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setMaxLabelText(text);
+        seekbar.forceLayout();
+      }
+    });
+  }
+
+  public void setLabelTextPadding(final int paddingInPx) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setLabelTextPadding(paddingInPx);
+        seekbar.forceLayout();
+      }
+    });
+  }
+
+  public void setValueTextSize(final float textSize) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setValueTextSize(textSize);
+      }
+    });
+  }
+
+  public void setValueTextPadding(final int paddingInPx) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setValueTextPadding(paddingInPx);
+      }
+    });
+  }
+
+  public void setThumbDrawable(@DrawableRes int drawable) {
+    setThumbDrawable(getResources().getDrawable(drawable));
+  }
+
+  public void setThumbDrawable(@NonNull final Drawable drawable) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setThumbDrawable(drawable);
+        seekbar.forceLayout();
+      }
+    });
+  }
+
+  public void setTickCount(final int count) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setTickCount(count);
+      }
+    });
+  }
+
+  public void setMajorTickInterval(final int interval) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setMajorTickInterval(interval);
+      }
+    });
+  }
+
+  public void setTickMinSpacing(final int spacingInPx) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setTickMinSpacing(spacingInPx);
+      }
+    });
+  }
+
+  public void setTickColor(@ColorInt final int color) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setTickColor(color);
+      }
+    });
+  }
+
+  public void setSnapIndex(@Nullable final DataSource snapIndex) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setSnapIndex(snapIndex);
+      }
+    });
+  }
+
+  public void setPercentileSketch(@Nullable final QuantileSketch sketch) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setPercentileSketch(sketch);
+      }
+    });
+  }
+
+  public void notifyPercentileSketchChanged() {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.notifyPercentileSketchChanged();
+      }
+    });
+  }
+
+  public void setDataSource(@Nullable final DataSource dataSource) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setDataSource(dataSource);
+      }
+    });
+  }
+
+  public void setHistogramColor(@ColorInt final int color) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setHistogramColor(color);
+      }
+    });
+  }
+
+  public void setHistogramHeight(final int heightInPx) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setHistogramHeight(heightInPx);
+      }
+    });
+  }
+
+  public void setHistogramBucketWidth(final int widthInPx) {
+    queueChange(new Runnable() {
+      @Override
+      public void run() {
+        seekbar.setHistogramBucketWidth(widthInPx);
+      }
+    });
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Internal methods
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  private void queueChange(Runnable change) {
+    pendingChanges.offer(change);
+    requestRender();
+  }
+
+  /**
+   * Wakes the render thread up for one more frame. Safe to call from any thread.
+   */
+  private void requestRender() {
+    renderRequested.set(true);
+    RenderThread thread = renderThread;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * Applies everything handed over since the last frame. Runs on the render thread.
+   */
+  private void applyPendingState() {
+    // Setters that move the thumb or change how the seekbar measures request a layout, which is
+    // picked up below
+    Runnable change;
+    while ((change = pendingChanges.poll()) != null) {
+      change.run();
+    }
+
+    long value = pendingValue.getAndSet(NO_PENDING_VALUE);
+    if (value != NO_PENDING_VALUE && !seekbar.isDragging()) {
+      seekbar.setCurrentValue(decodePendingDouble(value));
+    }
+
+    long size = pendingSize.getAndSet(NO_PENDING_VALUE);
+    if (size != NO_PENDING_VALUE) {
+      int width = (int) (size >> 32);
+      int height = (int) size;
+      seekbar.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+          View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+      seekbar.layout(0, 0, width, height);
+    } else if (seekbar.isLayoutRequested() && seekbar.getWidth() > 0) {
+      seekbar.measure(View.MeasureSpec.makeMeasureSpec(seekbar.getWidth(), View.MeasureSpec.EXACTLY),
+          View.MeasureSpec.makeMeasureSpec(seekbar.getHeight(), View.MeasureSpec.EXACTLY));
+      seekbar.layout(0, 0, seekbar.getWidth(), seekbar.getHeight());
+    }
+
+    long progress = pendingProgress.getAndSet(NO_PENDING_VALUE);
+    if (progress != NO_PENDING_VALUE) {
+      seekbar.setProgress(decodePendingValue(progress));
+    }
+
+    MotionEvent event;
+    while ((event = pendingTouchEvents.poll()) != null) {
+      seekbar.onTouchEvent(event);
+      event.recycle();
+    }
+
+    currentValue = seekbar.getPreciseValue();
+    currentProgress = seekbar.getProgress();
+    Rect bounds = seekbar.getThumbBounds();
+    thumbLeft = bounds.left;
+    thumbTop = bounds.top;
+    thumbRight = bounds.right;
+    thumbBottom = bounds.bottom;
+  }
+
+  private class RenderThread extends Thread {
+    private final SurfaceHolder holder;
+    volatile boolean running = true;
+
+    RenderThread(SurfaceHolder holder) {
+      super("SurfaceSeekbar");
+      this.holder = holder;
+    }
+
+    @Override
+    public void run() {
+      android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_DISPLAY);
+      while (running) {
+        if (!renderRequested.getAndSet(false)) {
+          LockSupport.park(this);
+          continue;
+        }
+
+        applyPendingState();
+        if (seekbar.getWidth() == 0) continue;
+
+        Canvas canvas = holder.lockCanvas();
+        if (canvas == null) continue;
+        try {
+          canvas.drawColor(backgroundColor);
+          // View alpha is applied by the parent, which the off-screen seekbar does not have
+          int alpha = (int) (seekbar.getAlpha() * 255);
+          if (alpha < 255) {
+            canvas.saveLayerAlpha(0, 0, seekbar.getWidth(), seekbar.getHeight(), alpha, Canvas.ALL_SAVE_FLAG);
+            seekbar.draw(canvas);
+            canvas.restore();
+          } else {
+            seekbar.draw(canvas);
+          }
+        } finally {
+          holder.unlockCanvasAndPost(canvas);
+        }
+      }
+    }
+  }
+}
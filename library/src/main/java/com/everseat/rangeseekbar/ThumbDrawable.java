@@ -0,0 +1,227 @@
+package com.everseat.rangeseekbar;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+
+/**
+ * A thumb drawn as a circle, used as the default thumb of {@link AbsSeekbar}. Nothing is decoded
+ * from resources and the pressed state only swaps the fill color and radius. It draws with the
+ * seekbars' shared scratch paint rather than holding a paint of its own.
+ */
+public class ThumbDrawable extends Drawable {
+  // The last default state handed out, reused while seekbars keep asking for the same thumb
+  private static ThumbState sharedState;
+
+  private ThumbState state;
+  private boolean mutated = false;
+  private boolean pressed = false;
+  private int alpha = 255;
+  private ColorFilter colorFilter;
+
+  public ThumbDrawable(float radius, @ColorInt int color, @ColorInt int pressedColor) {
+    this(new ThumbState());
+    state.radius = radius;
+    state.color = color;
+    state.pressedColor = pressedColor;
+  }
+
+  private ThumbDrawable(ThumbState state) {
+    this.state = state;
+  }
+
+  /**
+   * Returns a thumb whose state is shared with every other thumb obtained with the same values.
+   * The setters mutate the thumb before changing it, so the change stays with this thumb.
+   */
+  static ThumbDrawable obtainShared(float radius, int color, int pressedColor, float strokeWidth,
+      int strokeColor, float pressedScale) {
+    synchronized (ThumbDrawable.class) {
+      ThumbState state = sharedState;
+      if (state == null || state.radius != radius || state.color != color
+          || state.pressedColor != pressedColor || state.strokeWidth != strokeWidth
+          || state.strokeColor != strokeColor || state.pressedScale != pressedScale) {
+        state = new ThumbState();
+        state.radius = radius;
+        state.color = color;
+        state.pressedColor = pressedColor;
+        state.strokeWidth = strokeWidth;
+        state.strokeColor = strokeColor;
+        state.pressedScale = pressedScale;
+        sharedState = state;
+      }
+      return new ThumbDrawable(state);
+    }
+  }
+
+  @Override
+  public void draw(@NonNull Canvas canvas) {
+    Rect bounds = getBounds();
+    float radius = state.radius * (pressed ? state.pressedScale : 1f);
+
+    Paint paint = SharedPaints.scratchPaint();
+    paint.setColorFilter(colorFilter);
+    paint.setStyle(Paint.Style.FILL);
+    paint.setColor(pressed ? state.pressedColor : state.color);
+    paint.setAlpha(Color.alpha(paint.getColor()) * alpha / 255);
+    canvas.drawCircle(bounds.exactCenterX(), bounds.exactCenterY(), radius, paint);
+
+    if (state.strokeWidth > 0) {
+      paint.setStyle(Paint.Style.STROKE);
+      paint.setStrokeWidth(state.strokeWidth);
+      paint.setColor(state.strokeColor);
+      paint.setAlpha(Color.alpha(state.strokeColor) * alpha / 255);
+      canvas.drawCircle(bounds.exactCenterX(), bounds.exactCenterY(), radius - (state.strokeWidth / 2), paint);
+    }
+  }
+
+  @Override
+  public boolean isStateful() {
+    return true;
+  }
+
+  @Override
+  protected boolean onStateChange(int[] stateSet) {
+    boolean newPressed = false;
+    for (int s : stateSet) {
+      if (s == android.R.attr.state_pressed) {
+        newPressed = true;
+        break;
+      }
+    }
+    if (newPressed == pressed) return false;
+    pressed = newPressed;
+    invalidateSelf();
+    return true;
+  }
+
+  /**
+   * The intrinsic size fits the pressed thumb, so the bounds never change between states.
+   */
+  @Override
+  public int getIntrinsicWidth() {
+    return (int) Math.ceil(state.radius * Math.max(state.pressedScale, 1f) * 2);
+  }
+
+  @Override
+  public int getIntrinsicHeight() {
+    return getIntrinsicWidth();
+  }
+
+  @Override
+  public void setAlpha(int alpha) {
+    this.alpha = alpha;
+    invalidateSelf();
+  }
+
+  @Override
+  public void setColorFilter(ColorFilter colorFilter) {
+    this.colorFilter = colorFilter;
+    invalidateSelf();
+  }
+
+  @Override
+  public int getOpacity() {
+    return PixelFormat.TRANSLUCENT;
+  }
+
+  @Override
+  public ConstantState getConstantState() {
+    return state;
+  }
+
+  @NonNull
+  @Override
+  public Drawable mutate() {
+    if (!mutated && super.mutate() == this) {
+      state = new ThumbState(state);
+      mutated = true;
+    }
+    return this;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+  // Public API
+  //////////////////////////////////////////////////////////////////////////////////////////////////
+
+  public void setRadius(float radiusInPx) {
+    mutate();
+    state.radius = radiusInPx;
+    invalidateSelf();
+  }
+
+  public float getRadius() {
+    return state.radius;
+  }
+
+  public void setColor(@ColorInt int color) {
+    mutate();
+    state.color = color;
+    invalidateSelf();
+  }
+
+  public void setPressedColor(@ColorInt int color) {
+    mutate();
+    state.pressedColor = color;
+    invalidateSelf();
+  }
+
+  public void setStrokeWidth(float strokeWidthInPx) {
+    mutate();
+    state.strokeWidth = strokeWidthInPx;
+    invalidateSelf();
+  }
+
+  public void setStrokeColor(@ColorInt int color) {
+    mutate();
+    state.strokeColor = color;
+    invalidateSelf();
+  }
+
+  /**
+   * Sets the factor the radius is scaled by while the thumb is pressed.
+   */
+  public void setPressedScale(float scale) {
+    mutate();
+    state.pressedScale = scale;
+    invalidateSelf();
+  }
+
+  static class ThumbState extends ConstantState {
+    float radius;
+    int color;
+    int pressedColor;
+    float strokeWidth;
+    int strokeColor;
+    float pressedScale = 1f;
+
+    ThumbState() {
+    }
+
+    ThumbState(ThumbState other) {
+      radius = other.radius;
+      color = other.color;
+      pressedColor = other.pressedColor;
+      strokeWidth = other.strokeWidth;
+      strokeColor = other.strokeColor;
+      pressedScale = other.pressedScale;
+    }
+
+    @NonNull
+    @Override
+    public Drawable newDrawable() {
+      return new ThumbDrawable(this);
+    }
+
+    @Override
+    public int getChangingConfigurations() {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.everseat.rangeseekbar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AbsSeekbarTest {
+  @Test
+  public void tickStrideIsAtLeastOne() {
+    assertEquals(1, AbsSeekbar.calculateTickStride(100, 0, 0f));
+    assertEquals(1, AbsSeekbar.calculateTickStride(100, 10, 0.2f));
+  }
+
+  @Test
+  public void tickStrideRoundsUpWithoutMajorTicks() {
+    assertEquals(3, AbsSeekbar.calculateTickStride(100, 0, 2.1f));
+    assertEquals(7, AbsSeekbar.calculateTickStride(100, 1, 7f));
+  }
+
+  @Test
+  public void tickStrideBelowMajorIntervalIsDivisor() {
+    // 3 and 4 do not divide 10, 5 does
+    assertEquals(5, AbsSeekbar.calculateTickStride(100, 10, 3f));
+    assertEquals(2, AbsSeekbar.calculateTickStride(100, 10, 1.5f));
+    assertEquals(10, AbsSeekbar.calculateTickStride(100, 10, 6f));
+    assertEquals(12, AbsSeekbar.calculateTickStride(120, 12, 12f));
+  }
+
+  @Test
+  public void tickStrideAboveMajorIntervalIsMultiple() {
+    assertEquals(20, AbsSeekbar.calculateTickStride(100, 10, 11f));
+    assertEquals(30, AbsSeekbar.calculateTickStride(1000, 10, 25.5f));
+    assertEquals(14, AbsSeekbar.calculateTickStride(100, 7, 8f));
+  }
+
+  @Test
+  public void tickStrideNeverExceedsTickCount() {
+    assertEquals(100, AbsSeekbar.calculateTickStride(100, 10, 250f));
+    assertEquals(1, AbsSeekbar.calculateTickStride(0, 0, 5f));
+  }
+}
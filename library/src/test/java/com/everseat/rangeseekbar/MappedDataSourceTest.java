@@ -0,0 +1,141 @@
+package com.everseat.rangeseekbar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class MappedDataSourceTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private MappedDataSource doubles;
+  private MappedDataSource longs;
+
+  @Before
+  public void setUp() throws Exception {
+    doubles = MappedDataSource.open(writeDoubles(1.0, 2.0, 2.0, 3.5, 10.0), MappedDataSource.TYPE_DOUBLE);
+    longs = MappedDataSource.open(writeLongs(100L, 200L, 300L, 400L), MappedDataSource.TYPE_LONG);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    doubles.close();
+    longs.close();
+  }
+
+  @Test
+  public void readsLittleEndianValues() throws Exception {
+    assertEquals(5, doubles.size());
+    assertEquals(1.0, doubles.get(0), 0);
+    assertEquals(10.0, doubles.get(4), 0);
+
+    assertEquals(4, longs.size());
+    assertEquals(300.0, longs.get(2), 0);
+  }
+
+  @Test
+  public void binarySearchesMapping() throws Exception {
+    assertEquals(1, doubles.lowerBound(2.0));
+    assertEquals(3, doubles.upperBound(2.0));
+    assertEquals(0, doubles.lowerBound(-1));
+    assertEquals(5, doubles.lowerBound(11));
+
+    assertEquals(3.5, doubles.nearest(4.0), 0);
+    assertEquals(10.0, doubles.nearest(8.0), 0);
+    assertEquals(1.0, doubles.nearest(-5.0), 0);
+    assertEquals(200.0, longs.nearest(240), 0);
+  }
+
+  @Test
+  public void countsInclusiveRange() throws Exception {
+    assertEquals(3, doubles.count(2.0, 3.5));
+    assertEquals(5, doubles.count(1.0, 10.0));
+    assertEquals(0, doubles.count(4.0, 9.0));
+    assertEquals(0, doubles.count(3.0, 2.0));
+  }
+
+  @Test
+  public void aggregatesIntoBuckets() throws Exception {
+    int[] buckets = new int[3];
+    longs.aggregate(100, 400, buckets);
+    assertArrayEquals(new int[] {1, 1, 2}, buckets);
+
+    buckets = new int[2];
+    doubles.aggregate(0, 4, buckets);
+    assertArrayEquals(new int[] {1, 3}, buckets);
+  }
+
+  @Test
+  public void aggregatesBoundaryRangesLikeWholeArray() throws Exception {
+    double[] boundaries = {0, 1.5, 2, 3.5, 10};
+    int[] whole = new int[4];
+    doubles.aggregate(boundaries, 0, 4, whole);
+    assertArrayEquals(new int[] {1, 0, 2, 2}, whole);
+
+    int[] chunked = new int[4];
+    doubles.aggregate(boundaries, 0, 1, chunked);
+    doubles.aggregate(boundaries, 1, 3, chunked);
+    doubles.aggregate(boundaries, 3, 4, chunked);
+    assertArrayEquals(whole, chunked);
+  }
+
+  @Test
+  public void ignoresTrailingPartialValue() throws Exception {
+    File file = tempFolder.newFile();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(new byte[12]);
+    } finally {
+      out.close();
+    }
+
+    MappedDataSource source = MappedDataSource.open(file, MappedDataSource.TYPE_DOUBLE);
+    assertEquals(1, source.size());
+    source.close();
+  }
+
+  @Test
+  public void mapsEmptyFile() throws Exception {
+    MappedDataSource source = MappedDataSource.open(tempFolder.newFile(), MappedDataSource.TYPE_LONG);
+    assertEquals(0, source.size());
+    assertEquals(0, source.count(0, 100));
+    assertEquals(42.0, source.nearest(42), 0);
+    source.close();
+  }
+
+  private File writeDoubles(double... values) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+    for (double value : values) {
+      buffer.putDouble(value);
+    }
+    return write(buffer.array());
+  }
+
+  private File writeLongs(long... values) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+    for (long value : values) {
+      buffer.putLong(value);
+    }
+    return write(buffer.array());
+  }
+
+  private File write(byte[] bytes) throws IOException {
+    File file = tempFolder.newFile();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(bytes);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+}
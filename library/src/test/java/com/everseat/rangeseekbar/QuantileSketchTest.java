@@ -0,0 +1,134 @@
+package com.everseat.rangeseekbar;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuantileSketchTest {
+  private static final int VALUE_COUNT = 200000;
+
+  @Test
+  public void rankErrorIsBoundedForDefaultK() {
+    double[] values = gaussian(VALUE_COUNT, 1);
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.addAll(values);
+
+    assertEquals(VALUE_COUNT, sketch.getCount());
+    assertTrue(maxRankError(sketch.getCdf(), values) < 0.02);
+  }
+
+  @Test
+  public void rankErrorIsBoundedForSmallK() {
+    double[] values = gaussian(VALUE_COUNT, 2);
+    QuantileSketch sketch = new QuantileSketch(50);
+    for (double value : values) {
+      sketch.add(value);
+    }
+
+    assertTrue(maxRankError(sketch.getCdf(), values) < 0.08);
+  }
+
+  @Test
+  public void mergedSketchesMatchTheWholeData() {
+    double[] values = gaussian(VALUE_COUNT, 3);
+    QuantileSketch merged = new QuantileSketch();
+    int part = VALUE_COUNT / 4;
+    for (int i = 0; i < 4; i++) {
+      QuantileSketch sketch = new QuantileSketch();
+      sketch.addAll(values, i * part, part);
+      merged.merge(sketch);
+      assertEquals(part, sketch.getCount());
+    }
+
+    assertEquals(VALUE_COUNT, merged.getCount());
+    assertTrue(maxRankError(merged.getCdf(), values) < 0.02);
+  }
+
+  @Test
+  public void emptySketchHasEmptyCdf() {
+    QuantileSketch sketch = new QuantileSketch();
+    QuantileSketch.Cdf cdf = sketch.getCdf();
+
+    assertEquals(0, sketch.getCount());
+    assertTrue(cdf.isEmpty());
+    assertEquals(0, cdf.getRank(42), 0);
+  }
+
+  @Test
+  public void singleValueMapsEveryFractionToIt() {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.add(7.5);
+    QuantileSketch.Cdf cdf = sketch.getCdf();
+
+    assertFalse(cdf.isEmpty());
+    assertEquals(7.5, cdf.getQuantile(0), 0);
+    assertEquals(7.5, cdf.getQuantile(0.5), 0);
+    assertEquals(7.5, cdf.getQuantile(1), 0);
+    assertEquals(0, cdf.getRank(7), 0);
+    assertEquals(1, cdf.getRank(8), 0);
+  }
+
+  @Test
+  public void quantilesSpanTheData() {
+    double[] values = gaussian(VALUE_COUNT, 4);
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.addAll(values);
+    Arrays.sort(values);
+    QuantileSketch.Cdf cdf = sketch.getCdf();
+
+    assertTrue(cdf.getQuantile(0) >= values[0]);
+    assertTrue(cdf.getQuantile(1) <= values[values.length - 1]);
+    assertEquals(0, cdf.getRank(values[0] - 1), 0);
+    assertEquals(1, cdf.getRank(values[values.length - 1] + 1), 0);
+  }
+
+  @Test
+  public void cdfIsCachedUntilValuesAreAdded() {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.addAll(new double[] {1, 2, 3});
+    QuantileSketch.Cdf cdf = sketch.getCdf();
+    assertSame(cdf, sketch.getCdf());
+
+    // Spans several chunks of addAll
+    double[] values = new double[5000];
+    Arrays.fill(values, 10);
+    sketch.addAll(values);
+
+    assertNotSame(cdf, sketch.getCdf());
+    assertEquals(5003, sketch.getCount());
+    assertEquals(10, sketch.getCdf().getQuantile(1), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsTinyK() {
+    new QuantileSketch(1);
+  }
+
+  private static double[] gaussian(int count, long seed) {
+    Random random = new Random(seed);
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+
+  /**
+   * Returns the largest difference between the sketch rank and the true rank, checked at every
+   * percentile of the data.
+   */
+  private static double maxRankError(QuantileSketch.Cdf cdf, double[] values) {
+    double[] sorted = Arrays.copyOf(values, values.length);
+    Arrays.sort(sorted);
+    double maxError = 0;
+    for (int percentile = 1; percentile < 100; percentile++) {
+      double fraction = percentile / 100.0;
+      double value = sorted[(int) (fraction * sorted.length)];
+      maxError = Math.max(maxError, Math.abs(cdf.getRank(value) - fraction));
+    }
+    return maxError;
+  }
+}
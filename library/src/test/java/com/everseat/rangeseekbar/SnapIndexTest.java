@@ -0,0 +1,72 @@
+package com.everseat.rangeseekbar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SnapIndexTest {
+  @Test
+  public void sortsValuesOnConstruction() {
+    SnapIndex index = new SnapIndex(new double[] {3, 1, 2});
+
+    assertEquals(3, index.size());
+    assertEquals(1, index.get(0), 0);
+    assertEquals(3, index.get(2), 0);
+  }
+
+  @Test
+  public void appendMergesIntoSortedOrder() {
+    SnapIndex index = new SnapIndex(new double[] {1, 5, 9});
+    index.append(new double[] {7, 0, 5});
+
+    assertEquals(6, index.size());
+    double[] expected = {0, 1, 5, 5, 7, 9};
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], index.get(i), 0);
+    }
+    assertEquals(2, index.lowerBound(5));
+    assertEquals(4, index.upperBound(5));
+  }
+
+  @Test
+  public void replaceAllDropsPreviousValues() {
+    SnapIndex index = new SnapIndex(new double[] {1, 2, 3});
+    index.replaceAll(new double[] {20, 10});
+
+    assertEquals(2, index.size());
+    assertEquals(10, index.get(0), 0);
+    assertEquals(20, index.get(1), 0);
+    assertEquals(10, index.nearest(2), 0);
+  }
+
+  @Test
+  public void nearestPicksClosestValue() {
+    SnapIndex index = new SnapIndex(new double[] {1, 4, 10});
+
+    assertEquals(1, index.nearest(-3), 0);
+    assertEquals(4, index.nearest(4), 0);
+    assertEquals(4, index.nearest(6.9), 0);
+    assertEquals(10, index.nearest(7.1), 0);
+    assertEquals(10, index.nearest(42), 0);
+    // Ties go to the lower value
+    assertEquals(1, index.nearest(2.5), 0);
+  }
+
+  @Test
+  public void nearestOnEmptyIndexReturnsValue() {
+    SnapIndex index = new SnapIndex();
+
+    assertEquals(0, index.size());
+    assertEquals(1.5, index.nearest(1.5), 0);
+  }
+
+  @Test
+  public void keepsEpochTimestampsApart() {
+    SnapIndex index = new SnapIndex(new double[] {1760000000, 1760000060});
+    index.append(new double[] {1760000000000.0, 1760000000001.0});
+
+    assertEquals(1760000060, index.nearest(1760000060.0), 0);
+    assertEquals(1760000000, index.nearest(1760000029.0), 0);
+    assertEquals(1760000000001.0, index.nearest(1760000000000.9), 0);
+  }
+}